@@ -1,51 +1,84 @@
 package com.emotn.launcher.activity;
 
-import android.app.Activity;
 import android.content.Intent;
-import android.content.pm.PackageManager;
-import android.content.pm.ResolveInfo;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.KeyEvent;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.GridLayout;
-import android.widget.ImageView;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.leanback.widget.OnChildViewHolderSelectedListener;
+import androidx.leanback.widget.VerticalGridView;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.emotn.launcher.R;
-import com.emotn.launcher.activity.WallpaperSettingsActivity;
+import com.emotn.launcher.adapter.AppGridAdapter;
+import com.emotn.launcher.manager.AppCatalog;
+import com.emotn.launcher.manager.AppManager;
+import com.emotn.launcher.manager.AppSearchIndex;
 import com.emotn.launcher.service.WallpaperService;
+import com.emotn.launcher.utils.GridFocusNavigator;
 import com.emotn.launcher.utils.PermissionUtil;
 import com.emotn.launcher.utils.PerformanceUtil;
+import com.emotn.launcher.utils.StartupScheduler;
 
-import java.util.ArrayList;
 import java.util.List;
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements AppCatalog.Listener {
 
-    private GridLayout appGrid;
-    private List<ResolveInfo> appList;
-    private Handler handler;
+    // 与布局中的numberOfColumns保持一致
+    private static final int GRID_COLUMNS = 6;
+    // 6列 x 4行，预先创建一屏的图标视图
+    private static final int GRID_PREINFLATE_COUNT = 24;
+
+    private VerticalGridView appGrid;
+    private AppGridAdapter appGridAdapter;
+    private GridFocusNavigator focusNavigator;
+    private List<AppManager.AppItem> appList;
     private PerformanceUtil performanceUtil;
+    private AppManager appManager;
+    private AppCatalog appCatalog;
+    private AppSearchIndex searchIndex;
+    private TextView searchQueryText;
+    private final StringBuilder searchQuery = new StringBuilder();
+    private StartupScheduler startupScheduler;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        initViews();
-        initServices();
-        checkPermissions();
+        // 只有显示应用列表所需的初始化放在首帧之前
+        startupScheduler = new StartupScheduler(this);
+        startupScheduler.add(StartupScheduler.STAGE_BEFORE_FIRST_FRAME, "initViews", this::initViews);
+        startupScheduler.add(StartupScheduler.STAGE_BEFORE_FIRST_FRAME, "loadApps", this::loadApps);
+        startupScheduler.add(StartupScheduler.STAGE_AFTER_FIRST_FRAME, "initServices", this::initServices);
+        startupScheduler.add(StartupScheduler.STAGE_AFTER_FIRST_FRAME, "checkPermissions", this::checkPermissions);
+        startupScheduler.add(StartupScheduler.STAGE_IDLE, "initPerformanceMonitor", this::initPerformanceMonitor);
+        startupScheduler.start();
     }
 
     private void initViews() {
         appGrid = findViewById(R.id.app_grid);
-        handler = new Handler();
-        
+        searchQueryText = findViewById(R.id.search_query);
+        appGridAdapter = new AppGridAdapter(this, item -> launchApp(item.packageName, item.className));
+        appGrid.setAdapter(appGridAdapter);
+        appGridAdapter.preinflate(appGrid, GRID_PREINFLATE_COUNT);
+        focusNavigator = new GridFocusNavigator(position -> appGrid.setSelectedPositionSmooth(position));
+        appGrid.setOnChildViewHolderSelectedListener(new OnChildViewHolderSelectedListener() {
+            @Override
+            public void onChildViewHolderSelected(RecyclerView parent, RecyclerView.ViewHolder child,
+                                                  int position, int subposition) {
+                focusNavigator.setCurrentPosition(position);
+            }
+        });
+        appManager = AppManager.getInstance(this);
+        appCatalog = AppCatalog.getInstance(this);
+        searchIndex = new AppSearchIndex();
+    }
+
+    private void initPerformanceMonitor() {
         // 初始化性能监控工具
         performanceUtil = new PerformanceUtil(this);
         performanceUtil.startMonitoring();
@@ -66,42 +99,67 @@ public class MainActivity extends AppCompatActivity {
     }
 
     private void loadApps() {
-        handler.post(() -> {
-            PackageManager pm = getPackageManager();
-            Intent intent = new Intent(Intent.ACTION_MAIN, null);
-            intent.addCategory(Intent.CATEGORY_LAUNCHER);
-            appList = pm.queryIntentActivities(intent, 0);
-
-            runOnUiThread(() -> {
-                populateAppGrid();
-            });
-        });
+        // 应用目录先发布快照中的应用，之后每次包变化只推送合并后的增量结果
+        appCatalog.start();
+        appCatalog.removeListener(this);
+        appCatalog.addListener(this);
     }
 
-    private void populateAppGrid() {
-        appGrid.removeAllViews();
+    @Override
+    public void onAppsChanged(List<AppManager.AppItem> apps) {
+        if (isFinishing() || isDestroyed()) {
+            return;
+        }
+        appList = appManager.getDisplayApps(apps);
+        searchIndex.update(appList);
+        populateAppGrid();
+        if (!appList.isEmpty()) {
+            startupScheduler.reportFullyDrawn();
+        }
+    }
 
-        for (ResolveInfo info : appList) {
-            View appItem = getLayoutInflater().inflate(R.layout.app_item, null);
-            ImageView icon = appItem.findViewById(R.id.app_icon);
-            TextView label = appItem.findViewById(R.id.app_label);
+    private void populateAppGrid() {
+        if (searchQuery.length() > 0) {
+            appGridAdapter.submitApps(searchIndex.search(searchQuery.toString()));
+        } else if (appList != null) {
+            appGridAdapter.submitApps(appList);
+        }
+        focusNavigator.setLayout(appGridAdapter.getItemCount(), GRID_COLUMNS);
+    }
 
-            icon.setImageDrawable(info.loadIcon(getPackageManager()));
-            label.setText(info.loadLabel(getPackageManager()));
+    private boolean handleSearchKey(int keyCode, KeyEvent event) {
+        // 字母和数字键直接输入搜索关键字，删除键回退一个字符
+        if (keyCode == KeyEvent.KEYCODE_DEL) {
+            if (searchQuery.length() == 0) {
+                return false;
+            }
+            searchQuery.deleteCharAt(searchQuery.length() - 1);
+            updateSearch();
+            return true;
+        }
 
-            appItem.setOnClickListener(v -> {
-                String packageName = info.activityInfo.packageName;
-                String className = info.activityInfo.name;
-                launchApp(packageName, className);
-            });
+        int unicodeChar = event.getUnicodeChar();
+        if (unicodeChar != 0 && Character.isLetterOrDigit(unicodeChar)) {
+            searchQuery.appendCodePoint(unicodeChar);
+            updateSearch();
+            return true;
+        }
+        return false;
+    }
 
-            GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-            params.width = GridLayout.LayoutParams.WRAP_CONTENT;
-            params.height = GridLayout.LayoutParams.WRAP_CONTENT;
-            params.setMargins(24, 24, 24, 24);
+    private void clearSearch() {
+        searchQuery.setLength(0);
+        updateSearch();
+    }
 
-            appGrid.addView(appItem, params);
+    private void updateSearch() {
+        if (searchQuery.length() > 0) {
+            searchQueryText.setText(getString(R.string.search_query, searchQuery));
+            searchQueryText.setVisibility(View.VISIBLE);
+        } else {
+            searchQueryText.setVisibility(View.GONE);
         }
+        populateAppGrid();
     }
 
     private void launchApp(String packageName, String className) {
@@ -125,24 +183,36 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    public boolean dispatchKeyEvent(KeyEvent event) {
+        // 焦点在应用网格内时，方向键不经过系统的焦点查找，直接使用预先计算的邻居表
+        if (isDpadDirection(event.getKeyCode()) && appGrid != null && appGrid.hasFocus()
+                && appGridAdapter.getItemCount() > 0) {
+            if (event.getAction() == KeyEvent.ACTION_DOWN) {
+                onKeyDown(event.getKeyCode(), event);
+            }
+            return true;
+        }
+        return super.dispatchKeyEvent(event);
+    }
+
+    private static boolean isDpadDirection(int keyCode) {
+        return keyCode == KeyEvent.KEYCODE_DPAD_UP || keyCode == KeyEvent.KEYCODE_DPAD_DOWN
+                || keyCode == KeyEvent.KEYCODE_DPAD_LEFT || keyCode == KeyEvent.KEYCODE_DPAD_RIGHT;
+    }
+
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
         switch (keyCode) {
             case KeyEvent.KEYCODE_DPAD_UP:
-                // 处理向上导航
-                navigateUp();
-                return true;
             case KeyEvent.KEYCODE_DPAD_DOWN:
-                // 处理向下导航
-                navigateDown();
-                return true;
             case KeyEvent.KEYCODE_DPAD_LEFT:
-                // 处理向左导航
-                navigateLeft();
-                return true;
             case KeyEvent.KEYCODE_DPAD_RIGHT:
-                // 处理向右导航
-                navigateRight();
+                // 焦点不在网格内时交给系统的焦点查找
+                if (appGrid == null || !appGrid.hasFocus()) {
+                    return super.onKeyDown(keyCode, event);
+                }
+                navigate(keyCode, event.getRepeatCount() > 0);
                 return true;
             case KeyEvent.KEYCODE_ENTER:
             case KeyEvent.KEYCODE_DPAD_CENTER:
@@ -161,41 +231,45 @@ public class MainActivity extends AppCompatActivity {
                 // 处理Home键，保持默认行为
                 return super.onKeyDown(keyCode, event);
             default:
+                if (handleSearchKey(keyCode, event)) {
+                    return true;
+                }
                 return super.onKeyDown(keyCode, event);
         }
     }
 
-    private void navigateUp() {
-        // 实现向上导航逻辑
-        // 例如：移动焦点到上一个应用图标
-        Toast.makeText(this, "向上导航", Toast.LENGTH_SHORT).show();
-    }
-
-    private void navigateDown() {
-        // 实现向下导航逻辑
-        // 例如：移动焦点到下一个应用图标
-        Toast.makeText(this, "向下导航", Toast.LENGTH_SHORT).show();
-    }
-
-    private void navigateLeft() {
-        // 实现向左导航逻辑
-        // 例如：移动焦点到左侧应用图标
-        Toast.makeText(this, "向左导航", Toast.LENGTH_SHORT).show();
-    }
-
-    private void navigateRight() {
-        // 实现向右导航逻辑
-        // 例如：移动焦点到右侧应用图标
-        Toast.makeText(this, "向右导航", Toast.LENGTH_SHORT).show();
+    private void navigate(int keyCode, boolean repeat) {
+        // 长按时的重复按键在短时间窗口内合并为一次焦点移动
+        switch (keyCode) {
+            case KeyEvent.KEYCODE_DPAD_UP:
+                focusNavigator.move(GridFocusNavigator.DIRECTION_UP, repeat);
+                break;
+            case KeyEvent.KEYCODE_DPAD_DOWN:
+                focusNavigator.move(GridFocusNavigator.DIRECTION_DOWN, repeat);
+                break;
+            case KeyEvent.KEYCODE_DPAD_LEFT:
+                focusNavigator.move(GridFocusNavigator.DIRECTION_LEFT, repeat);
+                break;
+            case KeyEvent.KEYCODE_DPAD_RIGHT:
+                focusNavigator.move(GridFocusNavigator.DIRECTION_RIGHT, repeat);
+                break;
+        }
     }
 
     private void handleOkPress() {
-        // 实现OK键确认逻辑
-        // 例如：启动选中的应用
-        Toast.makeText(this, "OK键确认", Toast.LENGTH_SHORT).show();
+        // 启动当前选中的应用
+        int position = focusNavigator.getCurrentPosition();
+        if (position >= 0 && position < appGridAdapter.getItemCount()) {
+            AppManager.AppItem item = appGridAdapter.getItem(position);
+            launchApp(item.packageName, item.className);
+        }
     }
 
     private void handleBackPress() {
+        if (searchQuery.length() > 0) {
+            clearSearch();
+            return;
+        }
         // 实现返回键逻辑
         // 例如：退出当前菜单或应用
         Toast.makeText(this, "返回键", Toast.LENGTH_SHORT).show();
@@ -208,13 +282,32 @@ public class MainActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // 退到后台时立即写入待保存的应用设置
+        if (appManager != null) {
+            appManager.flushPendingWrites();
+        }
+    }
+
     @Override
     protected void onDestroy() {
         super.onDestroy();
         // 停止壁纸服务
         Intent wallpaperIntent = new Intent(this, WallpaperService.class);
         stopService(wallpaperIntent);
-        
+
+        if (appCatalog != null) {
+            appCatalog.removeListener(this);
+        }
+        if (focusNavigator != null) {
+            focusNavigator.cancel();
+        }
+        if (startupScheduler != null) {
+            startupScheduler.cancel();
+        }
+
         // 停止性能监控
         if (performanceUtil != null) {
             performanceUtil.stopMonitoring();
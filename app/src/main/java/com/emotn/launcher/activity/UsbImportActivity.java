@@ -14,19 +14,31 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.emotn.launcher.R;
+import com.emotn.launcher.adapter.UsbWallpaperAdapter;
+import com.emotn.launcher.manager.UsbScanEngine;
+import com.emotn.launcher.manager.WallpaperImporter;
+import com.emotn.launcher.manager.WallpaperLibrary;
 import com.emotn.launcher.manager.WallpaperManager;
+import com.emotn.launcher.utils.UsbReceiver;
 
+import java.util.ArrayList;
 import java.util.List;
 
-public class UsbImportActivity extends AppCompatActivity {
+public class UsbImportActivity extends AppCompatActivity implements WallpaperImporter.ImportListener,
+        UsbScanEngine.ScanListener {
 
     private static final String TAG = "UsbImportActivity";
 
-    private WallpaperManager wallpaperManager;
+    private UsbScanEngine scanEngine;
+    private WallpaperImporter wallpaperImporter;
     private ListView usbDeviceList;
     private ListView wallpaperFileList;
     private TextView statusText;
 
+    private UsbWallpaperAdapter wallpaperFileAdapter;
+    private String scanningVolume;
+    private final List<WallpaperImporter.ImportTask> importTasks = new ArrayList<>();
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -41,45 +53,112 @@ public class UsbImportActivity extends AppCompatActivity {
         usbDeviceList = findViewById(R.id.usb_device_list);
         wallpaperFileList = findViewById(R.id.wallpaper_file_list);
         statusText = findViewById(R.id.status_text);
+
+        wallpaperFileAdapter = new UsbWallpaperAdapter(this);
+        wallpaperFileList.setAdapter(wallpaperFileAdapter);
+        wallpaperFileList.setOnItemClickListener((parent, view, position, id) ->
+                showWallpaperOptions(wallpaperFileAdapter.getItem(position)));
     }
 
     private void initManagers() {
-        wallpaperManager = new WallpaperManager(this);
+        scanEngine = UsbScanEngine.getInstance(this);
+        wallpaperImporter = WallpaperImporter.getInstance(this);
     }
 
     private void scanUsbDevices() {
         // 扫描已连接的USB设备
-        // 简化实现，使用模拟数据
-        String[] usbDevices = {"USB设备1", "USB设备2"};
+        List<String> usbDevices = UsbReceiver.getUsbPaths(this);
         ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, usbDevices);
         usbDeviceList.setAdapter(adapter);
 
         usbDeviceList.setOnItemClickListener((parent, view, position, id) -> {
-            String deviceName = (String) parent.getItemAtPosition(position);
-            scanWallpaperFiles(deviceName);
+            String devicePath = (String) parent.getItemAtPosition(position);
+            scanWallpaperFiles(devicePath);
         });
     }
 
-    private void scanWallpaperFiles(String deviceName) {
-        // 扫描USB设备中的壁纸文件
-        // 简化实现，使用模拟数据
-        String[] wallpaperFiles = {"wallpaper1.jpg", "wallpaper2.mp4", "wallpaper3.gif"};
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, wallpaperFiles);
-        wallpaperFileList.setAdapter(adapter);
+    private void scanWallpaperFiles(String devicePath) {
+        // 扫描USB设备中的壁纸文件，找到一个显示一个；插入时已开始的扫描直接接上
+        scanEngine.removeListener(this);
+        wallpaperFileAdapter.clear();
+        scanningVolume = devicePath;
+        statusText.setText("正在扫描 " + devicePath);
+        scanEngine.requestScan(devicePath, this);
+    }
+
+    @Override
+    public void onWallpaperFound(UsbScanEngine.ScanJob job, WallpaperManager.WallpaperItem item) {
+        wallpaperFileAdapter.add(item);
+    }
 
-        statusText.setText("已扫描 " + deviceName + " 中的壁纸文件");
+    @Override
+    public void onWallpaperRemoved(UsbScanEngine.ScanJob job, WallpaperManager.WallpaperItem item) {
+        // 缓存中的文件已不在U盘上，按路径移除，不同目录可能有同名文件
+        wallpaperFileAdapter.remove(item.path);
+    }
 
-        wallpaperFileList.setOnItemClickListener((parent, view, position, id) -> {
-            String fileName = (String) parent.getItemAtPosition(position);
-            showWallpaperOptions(fileName);
-        });
+    @Override
+    public void onScanFinished(UsbScanEngine.ScanJob job) {
+        if (!job.getVolumePath().equals(scanningVolume)) {
+            return;
+        }
+        if (job.isVolumeDetached()) {
+            statusText.setText(R.string.device_disconnected);
+        } else {
+            statusText.setText("已扫描 " + job.getVolumePath() + " 中的壁纸文件");
+        }
     }
 
-    private void showWallpaperOptions(String fileName) {
-        // 显示壁纸操作选项
-        // 简化实现，直接设为壁纸
-        Toast.makeText(this, "正在导入壁纸: " + fileName, Toast.LENGTH_SHORT).show();
-        // 这里应该实现壁纸导入、预览和设置功能
+    private void showWallpaperOptions(WallpaperManager.WallpaperItem item) {
+        // 复制到内部存储后加入壁纸库，播放时不再从U盘读取
+        Toast.makeText(this, "正在导入壁纸: " + item.name, Toast.LENGTH_SHORT).show();
+        importTasks.add(wallpaperImporter.importWallpaper(item, this));
+    }
+
+    @Override
+    public void onProgress(WallpaperImporter.ImportTask task, long copiedBytes, long totalBytes,
+                           double bytesPerSecond, long etaMs) {
+        int percent = totalBytes > 0 ? (int) (copiedBytes * 100 / totalBytes) : 100;
+        statusText.setText(getString(R.string.import_progress, task.getSource().name, percent,
+                bytesPerSecond / (1024 * 1024), Math.max(0, etaMs / 1000)));
+    }
+
+    @Override
+    public void onFinished(WallpaperImporter.ImportTask task, int result, WallpaperLibrary.Record record) {
+        importTasks.remove(task);
+        switch (result) {
+            case WallpaperImporter.RESULT_SUCCESS:
+                statusText.setText(getString(R.string.import_finished, task.getSource().name));
+                break;
+            case WallpaperImporter.RESULT_CANCELLED:
+                statusText.setText(R.string.import_cancelled);
+                break;
+            case WallpaperImporter.RESULT_DETACHED:
+                statusText.setText(R.string.device_disconnected);
+                break;
+            case WallpaperImporter.RESULT_DUPLICATE:
+                statusText.setText(getString(R.string.import_duplicate, task.getSource().name));
+                break;
+            case WallpaperImporter.RESULT_NO_SPACE:
+                statusText.setText(R.string.insufficient_storage);
+                break;
+            default:
+                Log.e(TAG, "Error importing wallpaper: result " + result);
+                statusText.setText(getString(R.string.import_failed, task.getSource().name));
+                break;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // 扫描由引擎继续完成并预生成缩略图，界面只取消监听
+        scanEngine.removeListener(this);
+        wallpaperFileAdapter.clear();
+        // 导入在后台继续，只解除与界面的关联
+        for (WallpaperImporter.ImportTask task : importTasks) {
+            task.setListener(null);
+        }
     }
 
     public void onBackClick(View view) {
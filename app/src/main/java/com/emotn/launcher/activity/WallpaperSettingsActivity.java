@@ -8,8 +8,6 @@ import android.os.Bundle;
 import android.os.IBinder;
 import android.util.Log;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
 import android.widget.ListView;
 import android.widget.SeekBar;
 import android.widget.Switch;
@@ -18,11 +16,11 @@ import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.emotn.launcher.R;
+import com.emotn.launcher.adapter.WallpaperListAdapter;
+import com.emotn.launcher.manager.WallpaperLibrary;
 import com.emotn.launcher.manager.WallpaperManager;
 import com.emotn.launcher.service.WallpaperService;
 
-import java.util.List;
-
 public class WallpaperSettingsActivity extends AppCompatActivity {
 
     private static final String TAG = "WallpaperSettingsActivity";
@@ -32,6 +30,7 @@ public class WallpaperSettingsActivity extends AppCompatActivity {
     private WallpaperManager wallpaperManager;
 
     private ListView wallpaperList;
+    private WallpaperListAdapter wallpaperAdapter;
     private SeekBar transparencyBar;
     private SeekBar brightnessBar;
     private Switch muteSwitch;
@@ -68,6 +67,8 @@ public class WallpaperSettingsActivity extends AppCompatActivity {
     @Override
     protected void onStart() {
         super.onStart();
+        // 从导入页面返回时刷新列表
+        wallpaperAdapter.reload(WallpaperLibrary.SORT_BY_DATE);
         Intent intent = new Intent(this, WallpaperService.class);
         bindService(intent, serviceConnection, BIND_AUTO_CREATE);
     }
@@ -96,17 +97,16 @@ public class WallpaperSettingsActivity extends AppCompatActivity {
     }
 
     private void loadWallpapers() {
-        // 加载已导入的壁纸列表
-        // 这里应该从壁纸管理器中获取壁纸列表
-        // 简化实现，使用模拟数据
-        String[] wallpapers = {"默认壁纸", "壁纸1", "壁纸2", "壁纸3"};
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_list_item_1, wallpapers);
-        wallpaperList.setAdapter(adapter);
+        // 加载已导入的壁纸列表，从壁纸库中分页读取
+        wallpaperAdapter = new WallpaperListAdapter(this);
+        wallpaperList.setAdapter(wallpaperAdapter);
 
         wallpaperList.setOnItemClickListener((parent, view, position, id) -> {
             // 选择壁纸并设置
-            String wallpaperName = (String) parent.getItemAtPosition(position);
-            setWallpaper(wallpaperName);
+            WallpaperLibrary.Record record = wallpaperAdapter.getItem(position);
+            if (record != null) {
+                setWallpaper(record);
+            }
         });
     }
 
@@ -134,6 +134,9 @@ public class WallpaperSettingsActivity extends AppCompatActivity {
             @Override
             public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
                 if (fromUser) {
+                    if (isServiceBound) {
+                        wallpaperService.setBrightness(progress);
+                    }
                     wallpaperManager.setBrightness(progress);
                     brightnessValue.setText(progress + "%");
                 }
@@ -179,13 +182,10 @@ public class WallpaperSettingsActivity extends AppCompatActivity {
         brightnessValue.setText(brightness + "%");
     }
 
-    private void setWallpaper(String wallpaperName) {
-        // 设置壁纸逻辑
-        // 这里应该根据壁纸名称找到对应的壁纸文件路径
-        // 简化实现，使用默认壁纸
+    private void setWallpaper(WallpaperLibrary.Record record) {
+        wallpaperManager.setCurrentWallpaper(record.path, record.type);
         if (isServiceBound) {
-            // 这里应该设置实际的壁纸路径
-            wallpaperService.setWallpaper(null);
+            wallpaperService.setWallpaper(record.path);
         }
     }
 
@@ -0,0 +1,142 @@
+package com.emotn.launcher.adapter;
+
+import android.content.Context;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.emotn.launcher.R;
+import com.emotn.launcher.manager.AppManager;
+import com.emotn.launcher.manager.IconCache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AppGridAdapter extends RecyclerView.Adapter<AppGridAdapter.AppViewHolder> {
+
+    private static final int VIEW_TYPE_APP = 0;
+
+    public interface OnAppClickListener {
+        void onAppClick(AppManager.AppItem item);
+    }
+
+    private final LayoutInflater inflater;
+    private final IconCache iconCache;
+    private final OnAppClickListener clickListener;
+    private List<AppManager.AppItem> apps = new ArrayList<>();
+    // 组件名到稳定ID的映射，同一个应用在多次刷新之间保持相同ID
+    private final Map<String, Long> stableIds = new HashMap<>();
+    private long nextStableId = 1;
+
+    public AppGridAdapter(Context context, OnAppClickListener clickListener) {
+        this.inflater = LayoutInflater.from(context);
+        this.iconCache = IconCache.getInstance(context);
+        this.clickListener = clickListener;
+        setHasStableIds(true);
+    }
+
+    public void preinflate(RecyclerView recyclerView, int count) {
+        // 提前创建一屏所需的视图放入复用池，首次绑定时不再逐个inflate
+        RecyclerView.RecycledViewPool pool = recyclerView.getRecycledViewPool();
+        pool.setMaxRecycledViews(VIEW_TYPE_APP, count);
+        for (int i = pool.getRecycledViewCount(VIEW_TYPE_APP); i < count; i++) {
+            pool.putRecycledView(createViewHolder(recyclerView, VIEW_TYPE_APP));
+        }
+    }
+
+    public void submitApps(List<AppManager.AppItem> newApps) {
+        // 只通知发生变化的条目，未变化的图标不会重新绑定
+        final List<AppManager.AppItem> oldApps = apps;
+        final List<AppManager.AppItem> updatedApps = new ArrayList<>(newApps);
+        DiffUtil.DiffResult result = DiffUtil.calculateDiff(new DiffUtil.Callback() {
+            @Override
+            public int getOldListSize() {
+                return oldApps.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return updatedApps.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return oldApps.get(oldPosition).getComponentKey()
+                        .equals(updatedApps.get(newPosition).getComponentKey());
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                AppManager.AppItem oldItem = oldApps.get(oldPosition);
+                AppManager.AppItem newItem = updatedApps.get(newPosition);
+                return oldItem.versionCode == newItem.versionCode
+                        && oldItem.label.equals(newItem.label);
+            }
+        });
+        apps = updatedApps;
+        result.dispatchUpdatesTo(this);
+    }
+
+    public AppManager.AppItem getItem(int position) {
+        return apps.get(position);
+    }
+
+    @Override
+    public AppViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View itemView = inflater.inflate(R.layout.app_item, parent, false);
+        AppViewHolder holder = new AppViewHolder(itemView);
+        itemView.setOnClickListener(v -> {
+            int position = holder.getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION && clickListener != null) {
+                clickListener.onAppClick(apps.get(position));
+            }
+        });
+        return holder;
+    }
+
+    @Override
+    public void onBindViewHolder(AppViewHolder holder, int position) {
+        AppManager.AppItem item = apps.get(position);
+        iconCache.loadIcon(item, holder.icon);
+        holder.label.setText(item.label);
+    }
+
+    @Override
+    public int getItemCount() {
+        return apps.size();
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return VIEW_TYPE_APP;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        String key = apps.get(position).getComponentKey();
+        Long id = stableIds.get(key);
+        if (id == null) {
+            id = nextStableId++;
+            stableIds.put(key, id);
+        }
+        return id;
+    }
+
+    public static class AppViewHolder extends RecyclerView.ViewHolder {
+        final ImageView icon;
+        final TextView label;
+
+        AppViewHolder(View itemView) {
+            super(itemView);
+            icon = itemView.findViewById(R.id.app_icon);
+            label = itemView.findViewById(R.id.app_label);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.emotn.launcher.adapter;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import com.emotn.launcher.R;
+import com.emotn.launcher.manager.WallpaperManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UsbWallpaperAdapter extends BaseAdapter {
+
+    private final LayoutInflater inflater;
+    private final WallpaperManager wallpaperManager;
+    private final List<WallpaperManager.WallpaperItem> items = new ArrayList<>();
+    // 文件路径到当前显示它的视图，缩略图加载完成时视图可能已被复用
+    private final Map<String, ImageView> boundViews = new HashMap<>();
+    // 已提交的缩略图请求，列表刷新时不重复提交
+    private final Set<String> loadingPaths = new HashSet<>();
+
+    public UsbWallpaperAdapter(Context context) {
+        this.inflater = LayoutInflater.from(context);
+        this.wallpaperManager = new WallpaperManager(context);
+    }
+
+    public void add(WallpaperManager.WallpaperItem item) {
+        items.add(item);
+        notifyDataSetChanged();
+    }
+
+    public void remove(String path) {
+        for (int i = 0; i < items.size(); i++) {
+            WallpaperManager.WallpaperItem item = items.get(i);
+            if (item.path.equals(path)) {
+                items.remove(i);
+                unbind(item);
+                notifyDataSetChanged();
+                return;
+            }
+        }
+    }
+
+    public void clear() {
+        // 列表清空时所有缩略图都放回Bitmap池
+        for (WallpaperManager.WallpaperItem item : items) {
+            unbind(item);
+        }
+        items.clear();
+        notifyDataSetChanged();
+    }
+
+    @Override
+    public int getCount() {
+        return items.size();
+    }
+
+    @Override
+    public WallpaperManager.WallpaperItem getItem(int position) {
+        return items.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView != null ? convertView
+                : inflater.inflate(R.layout.wallpaper_file_item, parent, false);
+        ImageView thumbnailView = view.findViewById(R.id.wallpaper_thumbnail);
+        TextView nameView = view.findViewById(R.id.wallpaper_name);
+
+        WallpaperManager.WallpaperItem item = getItem(position);
+        WallpaperManager.WallpaperItem previous = (WallpaperManager.WallpaperItem) view.getTag();
+        nameView.setText(item.name);
+        view.setTag(item);
+        if (previous != item) {
+            // 视图被复用到其他文件：先清空图片再回收上一个文件的缩略图
+            if (item.thumbnail != null) {
+                thumbnailView.setImageBitmap(item.thumbnail);
+            } else {
+                thumbnailView.setImageDrawable(null);
+            }
+            if (previous != null && boundViews.get(previous.path) == thumbnailView) {
+                unbind(previous);
+            }
+        }
+        boundViews.put(item.path, thumbnailView);
+
+        if (item.thumbnail == null && loadingPaths.add(item.path)) {
+            wallpaperManager.loadThumbnail(item, this::onThumbnailLoaded);
+        }
+        return view;
+    }
+
+    private void onThumbnailLoaded(WallpaperManager.WallpaperItem item, Bitmap thumbnail) {
+        loadingPaths.remove(item.path);
+        ImageView target = boundViews.get(item.path);
+        if (target == null) {
+            // 加载期间已滚出屏幕或被移除
+            wallpaperManager.releaseThumbnail(item);
+        } else if (thumbnail != null) {
+            target.setImageBitmap(thumbnail);
+        }
+    }
+
+    private void unbind(WallpaperManager.WallpaperItem item) {
+        ImageView view = boundViews.remove(item.path);
+        if (view != null && ((View) view.getParent()).getTag() == item) {
+            view.setImageDrawable(null);
+        }
+        wallpaperManager.releaseThumbnail(item);
+    }
+}
@@ -0,0 +1,153 @@
+package com.emotn.launcher.adapter;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.BaseAdapter;
+import android.widget.TextView;
+
+import com.emotn.launcher.R;
+import com.emotn.launcher.manager.WallpaperLibrary;
+import com.emotn.launcher.service.WallpaperService;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class WallpaperListAdapter extends BaseAdapter {
+
+    private static final int PAGE_SIZE = 50;
+    // 内存中最多保留的页数，离当前位置最远的页先被丢弃
+    private static final int MAX_CACHED_PAGES = 8;
+
+    private static final ExecutorService queryExecutor = Executors.newSingleThreadExecutor();
+
+    private final LayoutInflater inflater;
+    private final WallpaperLibrary library;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final SparseArray<List<WallpaperLibrary.Record>> pages = new SparseArray<>();
+    private final Set<Integer> loadingPages = new HashSet<>();
+    private final Context context;
+    private int count;
+    private int sortOrder = WallpaperLibrary.SORT_BY_DATE;
+    // 重新加载后丢弃之前发出的查询结果
+    private int generation;
+
+    public WallpaperListAdapter(Context context) {
+        this.context = context;
+        this.inflater = LayoutInflater.from(context);
+        this.library = WallpaperLibrary.getInstance(context);
+    }
+
+    public void reload(int sortOrder) {
+        // 只查询总数和第一页，其余页在滚动到附近时再加载
+        this.sortOrder = sortOrder;
+        int requestGeneration = ++generation;
+        pages.clear();
+        loadingPages.clear();
+        queryExecutor.execute(() -> {
+            int total = library.getCount();
+            List<WallpaperLibrary.Record> firstPage = library.query(sortOrder, 0, PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                count = total;
+                pages.put(0, firstPage);
+                notifyDataSetChanged();
+            });
+        });
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public WallpaperLibrary.Record getItem(int position) {
+        int page = position / PAGE_SIZE;
+        List<WallpaperLibrary.Record> records = pages.get(page);
+        if (records == null) {
+            loadPage(page);
+            return null;
+        }
+        // 接近页尾时预取下一页
+        if (position % PAGE_SIZE >= PAGE_SIZE - PAGE_SIZE / 4 && (page + 1) * PAGE_SIZE < count) {
+            loadPage(page + 1);
+        }
+        int index = position % PAGE_SIZE;
+        return index < records.size() ? records.get(index) : null;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public View getView(int position, View convertView, ViewGroup parent) {
+        View view = convertView != null ? convertView
+                : inflater.inflate(android.R.layout.simple_list_item_2, parent, false);
+        TextView title = view.findViewById(android.R.id.text1);
+        TextView subtitle = view.findViewById(android.R.id.text2);
+
+        WallpaperLibrary.Record record = getItem(position);
+        if (record == null) {
+            title.setText("");
+            subtitle.setText("");
+        } else {
+            title.setText(record.name);
+            subtitle.setText(getTypeLabel(record.type));
+        }
+        return view;
+    }
+
+    private String getTypeLabel(int type) {
+        switch (type) {
+            case WallpaperService.WALLPAPER_TYPE_VIDEO:
+                return context.getString(R.string.video);
+            case WallpaperService.WALLPAPER_TYPE_GIF:
+                return context.getString(R.string.gif);
+            case WallpaperService.WALLPAPER_TYPE_STATIC:
+            default:
+                return context.getString(R.string.image);
+        }
+    }
+
+    private void loadPage(int page) {
+        if (pages.get(page) != null || !loadingPages.add(page)) {
+            return;
+        }
+        int requestGeneration = generation;
+        int order = sortOrder;
+        queryExecutor.execute(() -> {
+            List<WallpaperLibrary.Record> records = library.query(order, page * PAGE_SIZE, PAGE_SIZE);
+            mainHandler.post(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingPages.remove(page);
+                pages.put(page, records);
+                trimPages(page);
+                notifyDataSetChanged();
+            });
+        });
+    }
+
+    private void trimPages(int currentPage) {
+        while (pages.size() > MAX_CACHED_PAGES) {
+            int farthest = pages.keyAt(0);
+            if (Math.abs(pages.keyAt(pages.size() - 1) - currentPage) > Math.abs(farthest - currentPage)) {
+                farthest = pages.keyAt(pages.size() - 1);
+            }
+            pages.remove(farthest);
+        }
+    }
+}
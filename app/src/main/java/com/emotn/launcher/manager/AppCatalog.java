@@ -0,0 +1,326 @@
+package com.emotn.launcher.manager;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class AppCatalog {
+
+    private static final String TAG = "AppCatalog";
+    // 连续的包变化事件合并为一次界面更新
+    private static final long DELTA_DELAY_MS = 500;
+    private static final long DELTA_MAX_DELAY_MS = 3000;
+
+    public interface Listener {
+        void onAppsChanged(List<AppManager.AppItem> apps);
+    }
+
+    private static AppCatalog instance;
+
+    private final Context context;
+    private final PackageManager packageManager;
+    private final AppSnapshot snapshot;
+    private final IconCache iconCache;
+    private final Handler workerHandler;
+    private final Handler mainHandler;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // 以下状态只在工作线程中读写
+    private final Map<String, AppManager.AppItem> items = new LinkedHashMap<>();
+    private final Set<String> pendingPackages = new HashSet<>();
+    // 新增或版本变化、图标尚未缓存的条目，发布列表后再加载图标
+    private final List<AppManager.AppItem> pendingIcons = new ArrayList<>();
+    private long firstPendingTime;
+    private boolean started;
+    // 当前条目名称所用的语言，语言变化后所有名称都需要重新加载
+    private String labelLocale;
+
+    // 最近一次发布的应用列表，只在主线程中读写
+    private List<AppManager.AppItem> publishedApps;
+    // 最新的应用列表，可在任意线程读取
+    private volatile List<AppManager.AppItem> currentApps = Collections.emptyList();
+
+    private final Runnable flushRunnable = this::flushPendingPackages;
+
+    private final BroadcastReceiver packageReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Uri data = intent.getData();
+            if (data == null) {
+                return;
+            }
+            // 覆盖安装时先收到REMOVED再收到ADDED/REPLACED，只处理后者
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)) {
+                return;
+            }
+            String packageName = data.getSchemeSpecificPart();
+            workerHandler.post(() -> schedulePackageDelta(packageName));
+        }
+    };
+
+    private final BroadcastReceiver localeReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            // 系统语言变化，重新比对时加载新语言的名称
+            syncAll();
+        }
+    };
+
+    public static synchronized AppCatalog getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppCatalog(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AppCatalog(Context context) {
+        this.context = context;
+        this.packageManager = context.getPackageManager();
+        this.snapshot = new AppSnapshot(context);
+        this.iconCache = IconCache.getInstance(context);
+
+        HandlerThread workerThread = new HandlerThread(TAG);
+        workerThread.start();
+        this.workerHandler = new Handler(workerThread.getLooper());
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void start() {
+        // 只在首次启动时读取快照并完整比对一次，之后只处理单个包的变化
+        if (started) {
+            return;
+        }
+        started = true;
+
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        context.registerReceiver(packageReceiver, filter, null, workerHandler);
+        context.registerReceiver(localeReceiver, new IntentFilter(Intent.ACTION_LOCALE_CHANGED),
+                null, workerHandler);
+
+        workerHandler.post(() -> {
+            labelLocale = Locale.getDefault().toString();
+            for (AppManager.AppItem item : snapshot.load(labelLocale)) {
+                items.put(item.getComponentKey(), item);
+            }
+            if (!items.isEmpty()) {
+                publish();
+            }
+            syncAll();
+        });
+    }
+
+    public void requestSync() {
+        workerHandler.post(this::syncAll);
+    }
+
+    public void republish() {
+        // 应用本身没有变化，但隐藏状态或排序变了，监听者需要重新计算显示列表
+        workerHandler.post(() -> {
+            if (!items.isEmpty()) {
+                publish();
+            }
+        });
+    }
+
+    public List<AppManager.AppItem> getApps() {
+        return currentApps;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+        if (publishedApps != null) {
+            listener.onAppsChanged(publishedApps);
+        }
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void syncAll() {
+        // 与PackageManager完整比对，只重新加载新增、版本变化或语言变化的应用
+        String locale = Locale.getDefault().toString();
+        boolean relabel = !locale.equals(labelLocale);
+        labelLocale = locale;
+        Map<String, Long> versionCodes = loadVersionCodes();
+        List<ResolveInfo> infos = queryLauncherActivities(null);
+        Map<String, AppManager.AppItem> syncedItems = new LinkedHashMap<>();
+        boolean changed = infos.size() != items.size();
+
+        for (ResolveInfo info : infos) {
+            Long versionCode = versionCodes.get(info.activityInfo.packageName);
+            AppManager.AppItem item = updateItem(info, versionCode != null ? versionCode : 0, relabel);
+            changed |= item != items.get(item.getComponentKey());
+            syncedItems.put(item.getComponentKey(), item);
+        }
+
+        // 已卸载应用的图标从缓存中删除
+        for (AppManager.AppItem item : items.values()) {
+            if (!syncedItems.containsKey(item.getComponentKey())) {
+                iconCache.removeIcons(item);
+            }
+        }
+
+        if (changed) {
+            items.clear();
+            items.putAll(syncedItems);
+            snapshot.save(new ArrayList<>(items.values()), labelLocale);
+            publish();
+        }
+        preloadPendingIcons();
+    }
+
+    private void schedulePackageDelta(String packageName) {
+        long now = SystemClock.uptimeMillis();
+        if (pendingPackages.isEmpty()) {
+            firstPendingTime = now;
+        }
+        pendingPackages.add(packageName);
+
+        // 每次新事件都推迟合并时间，但最长不超过DELTA_MAX_DELAY_MS
+        workerHandler.removeCallbacks(flushRunnable);
+        long flushTime = Math.min(now + DELTA_DELAY_MS, firstPendingTime + DELTA_MAX_DELAY_MS);
+        workerHandler.postAtTime(flushRunnable, flushTime);
+    }
+
+    private void flushPendingPackages() {
+        boolean changed = false;
+        for (String packageName : pendingPackages) {
+            changed |= applyPackageDelta(packageName);
+        }
+        Log.d(TAG, "Applied " + pendingPackages.size() + " package deltas, changed: " + changed);
+        pendingPackages.clear();
+
+        if (changed) {
+            snapshot.save(new ArrayList<>(items.values()), labelLocale);
+            publish();
+        }
+        preloadPendingIcons();
+    }
+
+    private boolean applyPackageDelta(String packageName) {
+        // 只查询单个包的启动Activity，与目录中该包的条目比对
+        long versionCode = 0;
+        List<ResolveInfo> infos = Collections.emptyList();
+        try {
+            versionCode = getVersionCode(packageManager.getPackageInfo(packageName, 0));
+            infos = queryLauncherActivities(packageName);
+        } catch (PackageManager.NameNotFoundException e) {
+            // 应用已被卸载
+        }
+
+        Set<String> currentKeys = new HashSet<>();
+        boolean changed = false;
+        for (ResolveInfo info : infos) {
+            AppManager.AppItem item = updateItem(info, versionCode, false);
+            currentKeys.add(item.getComponentKey());
+            if (items.put(item.getComponentKey(), item) != item) {
+                changed = true;
+            }
+        }
+
+        Iterator<AppManager.AppItem> iterator = items.values().iterator();
+        while (iterator.hasNext()) {
+            AppManager.AppItem item = iterator.next();
+            if (item.packageName.equals(packageName) && !currentKeys.contains(item.getComponentKey())) {
+                iterator.remove();
+                iconCache.removeIcons(item);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private AppManager.AppItem updateItem(ResolveInfo info, long versionCode, boolean relabel) {
+        // 已有条目版本号未变且语言未变时直接复用，不再调用loadLabel
+        String key = AppManager.AppItem.componentKey(info.activityInfo.packageName, info.activityInfo.name);
+        AppManager.AppItem item = items.get(key);
+        if (item != null && item.versionCode == versionCode && !relabel) {
+            return item;
+        }
+
+        String label = info.loadLabel(packageManager).toString();
+        AppManager.AppItem updated = new AppManager.AppItem(info.activityInfo.packageName, info.activityInfo.name,
+                label, versionCode);
+        // 图标缓存按版本号区分，只改语言时原图标仍可用
+        if (item == null || item.versionCode != versionCode) {
+            pendingIcons.add(updated);
+        }
+        return updated;
+    }
+
+    private void preloadPendingIcons() {
+        // 图标不阻塞发布：首次运行时先显示名称，图块用占位图绑定，图标随后在解码线程中加载
+        if (pendingIcons.isEmpty()) {
+            return;
+        }
+        iconCache.preloadIcons(new ArrayList<>(pendingIcons));
+        pendingIcons.clear();
+    }
+
+    private void publish() {
+        List<AppManager.AppItem> apps = Collections.unmodifiableList(new ArrayList<>(items.values()));
+        currentApps = apps;
+        mainHandler.post(() -> {
+            publishedApps = apps;
+            for (Listener listener : listeners) {
+                listener.onAppsChanged(apps);
+            }
+        });
+    }
+
+    private List<ResolveInfo> queryLauncherActivities(String packageName) {
+        Intent intent = new Intent(Intent.ACTION_MAIN, null);
+        intent.addCategory(Intent.CATEGORY_LAUNCHER);
+        if (packageName != null) {
+            intent.setPackage(packageName);
+        }
+        return packageManager.queryIntentActivities(intent, 0);
+    }
+
+    private Map<String, Long> loadVersionCodes() {
+        // 一次查询所有包的版本号，避免逐个调用getPackageInfo
+        Map<String, Long> versionCodes = new HashMap<>();
+        for (PackageInfo packageInfo : packageManager.getInstalledPackages(0)) {
+            versionCodes.put(packageInfo.packageName, getVersionCode(packageInfo));
+        }
+        return versionCodes;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long getVersionCode(PackageInfo packageInfo) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return packageInfo.getLongVersionCode();
+        }
+        return packageInfo.versionCode;
+    }
+}
@@ -5,13 +5,17 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.SharedPreferences;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.util.Log;
 
-import com.emotn.launcher.activity.MainActivity;
-
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 public class AppManager {
@@ -22,14 +26,56 @@ public class AppManager {
     private static final String KEY_FAVORITE_APPS = "favorite_apps";
     private static final String KEY_APP_ORDER = "app_order";
 
+    // 多次修改合并为一次写入
+    private static final long PERSIST_DELAY_MS = 300;
+    // 排序位置之间预留的间隔，移动应用时取相邻位置的中间值
+    private static final long ORDER_GAP = 1L << 20;
+
+    private static AppManager instance;
+
     private Context context;
     private SharedPreferences preferences;
     private PackageManager packageManager;
+    private Handler persistHandler;
+
+    // 内存索引，所有查询都不再读取SharedPreferences
+    private final Set<String> hiddenPackages = new HashSet<>();
+    private final Set<String> favoritePackages = new HashSet<>();
+    // 每个启动组件单独保存一个排序位置，键为KEY_APP_ORDER + ":" + 组件键；同一个包可能有多个启动组件
+    private final Map<String, Long> orderPositions = new HashMap<>();
+    private final Set<String> dirtyOrderKeys = new HashSet<>();
+    private boolean persistScheduled;
+
+    private final Runnable persistRunnable = this::persistState;
 
-    public AppManager(Context context) {
+    public static synchronized AppManager getInstance(Context context) {
+        if (instance == null) {
+            instance = new AppManager(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private AppManager(Context context) {
         this.context = context;
         this.preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
         this.packageManager = context.getPackageManager();
+
+        HandlerThread persistThread = new HandlerThread(TAG);
+        persistThread.start();
+        this.persistHandler = new Handler(persistThread.getLooper());
+
+        hiddenPackages.addAll(preferences.getStringSet(KEY_HIDDEN_APPS, new HashSet<>()));
+        favoritePackages.addAll(preferences.getStringSet(KEY_FAVORITE_APPS, new HashSet<>()));
+        loadOrderPositions();
+    }
+
+    private void loadOrderPositions() {
+        String prefix = KEY_APP_ORDER + ":";
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && entry.getValue() instanceof Long) {
+                orderPositions.put(entry.getKey().substring(prefix.length()), (Long) entry.getValue());
+            }
+        }
     }
 
     public List<ResolveInfo> getInstalledApps() {
@@ -39,60 +85,72 @@ public class AppManager {
         return filterHiddenApps(apps);
     }
 
-    public List<ResolveInfo> getFavoriteApps() {
-        Set<String> favoritePackageNames = preferences.getStringSet(KEY_FAVORITE_APPS, new HashSet<>());
-        List<ResolveInfo> favoriteApps = new ArrayList<>();
-        List<ResolveInfo> allApps = getInstalledApps();
-
-        for (ResolveInfo info : allApps) {
-            if (favoritePackageNames.contains(info.activityInfo.packageName)) {
-                favoriteApps.add(info);
+    public synchronized List<AppItem> getFavoriteApps() {
+        // 直接从应用目录中筛选，不再查询PackageManager
+        List<AppItem> favoriteApps = new ArrayList<>();
+        for (AppItem item : AppCatalog.getInstance(context).getApps()) {
+            if (favoritePackages.contains(item.packageName) && !hiddenPackages.contains(item.packageName)) {
+                favoriteApps.add(item);
             }
         }
-
         return favoriteApps;
     }
 
     public void addToFavorites(String packageName) {
-        Set<String> favoritePackageNames = new HashSet<>(preferences.getStringSet(KEY_FAVORITE_APPS, new HashSet<>()));
-        favoritePackageNames.add(packageName);
-        preferences.edit().putStringSet(KEY_FAVORITE_APPS, favoritePackageNames).apply();
+        addToFavorites(Collections.singleton(packageName));
+    }
+
+    public synchronized void addToFavorites(Collection<String> packageNames) {
+        if (favoritePackages.addAll(packageNames)) {
+            schedulePersist();
+        }
     }
 
     public void removeFromFavorites(String packageName) {
-        Set<String> favoritePackageNames = new HashSet<>(preferences.getStringSet(KEY_FAVORITE_APPS, new HashSet<>()));
-        favoritePackageNames.remove(packageName);
-        preferences.edit().putStringSet(KEY_FAVORITE_APPS, favoritePackageNames).apply();
+        removeFromFavorites(Collections.singleton(packageName));
+    }
+
+    public synchronized void removeFromFavorites(Collection<String> packageNames) {
+        if (favoritePackages.removeAll(packageNames)) {
+            schedulePersist();
+        }
     }
 
-    public boolean isFavorite(String packageName) {
-        Set<String> favoritePackageNames = preferences.getStringSet(KEY_FAVORITE_APPS, new HashSet<>());
-        return favoritePackageNames.contains(packageName);
+    public synchronized boolean isFavorite(String packageName) {
+        return favoritePackages.contains(packageName);
     }
 
     public void hideApp(String packageName) {
-        Set<String> hiddenPackageNames = new HashSet<>(preferences.getStringSet(KEY_HIDDEN_APPS, new HashSet<>()));
-        hiddenPackageNames.add(packageName);
-        preferences.edit().putStringSet(KEY_HIDDEN_APPS, hiddenPackageNames).apply();
+        hideApps(Collections.singleton(packageName));
+    }
+
+    public synchronized void hideApps(Collection<String> packageNames) {
+        if (hiddenPackages.addAll(packageNames)) {
+            schedulePersist();
+            republishApps();
+        }
     }
 
     public void unhideApp(String packageName) {
-        Set<String> hiddenPackageNames = new HashSet<>(preferences.getStringSet(KEY_HIDDEN_APPS, new HashSet<>()));
-        hiddenPackageNames.remove(packageName);
-        preferences.edit().putStringSet(KEY_HIDDEN_APPS, hiddenPackageNames).apply();
+        unhideApps(Collections.singleton(packageName));
     }
 
-    public boolean isHidden(String packageName) {
-        Set<String> hiddenPackageNames = preferences.getStringSet(KEY_HIDDEN_APPS, new HashSet<>());
-        return hiddenPackageNames.contains(packageName);
+    public synchronized void unhideApps(Collection<String> packageNames) {
+        if (hiddenPackages.removeAll(packageNames)) {
+            schedulePersist();
+            republishApps();
+        }
+    }
+
+    public synchronized boolean isHidden(String packageName) {
+        return hiddenPackages.contains(packageName);
     }
 
-    private List<ResolveInfo> filterHiddenApps(List<ResolveInfo> apps) {
-        Set<String> hiddenPackageNames = preferences.getStringSet(KEY_HIDDEN_APPS, new HashSet<>());
+    private synchronized List<ResolveInfo> filterHiddenApps(List<ResolveInfo> apps) {
         List<ResolveInfo> filteredApps = new ArrayList<>();
 
         for (ResolveInfo info : apps) {
-            if (!hiddenPackageNames.contains(info.activityInfo.packageName)) {
+            if (!hiddenPackages.contains(info.activityInfo.packageName)) {
                 filteredApps.add(info);
             }
         }
@@ -100,10 +158,97 @@ public class AppManager {
         return filteredApps;
     }
 
+    public synchronized List<AppItem> filterHiddenItems(List<AppItem> apps) {
+        List<AppItem> filteredApps = new ArrayList<>();
+
+        for (AppItem item : apps) {
+            if (!hiddenPackages.contains(item.packageName)) {
+                filteredApps.add(item);
+            }
+        }
+
+        return filteredApps;
+    }
+
+    public synchronized List<AppItem> getDisplayApps(List<AppItem> apps) {
+        // 过滤隐藏应用并按自定义顺序排序，一次排序完成
+        List<AppItem> displayApps = filterHiddenItems(apps);
+        Collections.sort(displayApps, this::compareOrder);
+        return displayApps;
+    }
+
+    private int compareOrder(AppItem a, AppItem b) {
+        // 有排序位置的应用在前；之后安装的应用按名称排在后面，不影响已有位置
+        Long positionA = orderPositions.get(a.getComponentKey());
+        Long positionB = orderPositions.get(b.getComponentKey());
+        if (positionA != null && positionB != null) {
+            int result = Long.compare(positionA, positionB);
+            if (result != 0) {
+                return result;
+            }
+        } else if (positionA != null) {
+            return -1;
+        } else if (positionB != null) {
+            return 1;
+        }
+
+        int result = a.label.compareToIgnoreCase(b.label);
+        if (result != 0) {
+            return result;
+        }
+        return a.getComponentKey().compareTo(b.getComponentKey());
+    }
+
+    private void schedulePersist() {
+        // 调用方已持有锁；已有待写入任务时不再重复提交
+        if (!persistScheduled) {
+            persistScheduled = true;
+            persistHandler.postDelayed(persistRunnable, PERSIST_DELAY_MS);
+        }
+    }
+
+    public void flushPendingWrites() {
+        // 界面退到后台时立即写入，避免进程被杀丢失修改
+        persistHandler.removeCallbacks(persistRunnable);
+        persistHandler.post(persistRunnable);
+    }
+
+    private void persistState() {
+        Set<String> hidden;
+        Set<String> favorites;
+        Map<String, Long> orders;
+        synchronized (this) {
+            if (!persistScheduled) {
+                return;
+            }
+            persistScheduled = false;
+            hidden = new HashSet<>(hiddenPackages);
+            favorites = new HashSet<>(favoritePackages);
+            orders = new HashMap<>();
+            for (String componentKey : dirtyOrderKeys) {
+                orders.put(componentKey, orderPositions.get(componentKey));
+            }
+            dirtyOrderKeys.clear();
+        }
+
+        // 已在后台线程，使用commit同步写入；排序只写入变化的应用
+        SharedPreferences.Editor editor = preferences.edit()
+                .putStringSet(KEY_HIDDEN_APPS, hidden)
+                .putStringSet(KEY_FAVORITE_APPS, favorites);
+        for (Map.Entry<String, Long> entry : orders.entrySet()) {
+            String key = KEY_APP_ORDER + ":" + entry.getKey();
+            if (entry.getValue() != null) {
+                editor.putLong(key, entry.getValue());
+            } else {
+                editor.remove(key);
+            }
+        }
+        editor.commit();
+    }
+
     public void refreshApps() {
-        // 刷新应用列表，通知主界面更新
-        Intent intent = new Intent("com.emotn.launcher.APP_LIST_REFRESHED");
-        context.sendBroadcast(intent);
+        // 刷新应用列表，应用目录完成比对后会通知主界面更新有变化的条目
+        AppCatalog.getInstance(context).requestSync();
     }
 
     public void uninstallApp(String packageName) {
@@ -117,9 +262,95 @@ public class AppManager {
         }
     }
 
-    public void moveApp(String packageName, int newPosition) {
-        // 实现应用排序逻辑
-        // 这里可以保存应用的排序位置，然后在加载时按照保存的顺序显示
-        Log.d(TAG, "Move app " + packageName + " to position " + newPosition);
+    public synchronized void moveApp(AppItem app, int newPosition) {
+        // 只修改被移动组件的排序位置，取目标位置前后两个组件位置的中间值；位置是显示列表中的下标
+        String componentKey = app.getComponentKey();
+        Log.d(TAG, "Move app " + componentKey + " to position " + newPosition);
+        List<String> orderedKeys = new ArrayList<>();
+        for (AppItem item : getDisplayApps(AppCatalog.getInstance(context).getApps())) {
+            if (!item.getComponentKey().equals(componentKey)) {
+                orderedKeys.add(item.getComponentKey());
+            }
+        }
+        int target = Math.max(0, Math.min(newPosition, orderedKeys.size()));
+        insertOrderPosition(orderPositions, dirtyOrderKeys, orderedKeys, componentKey, target);
+        schedulePersist();
+        republishApps();
+    }
+
+    static void insertOrderPosition(Map<String, Long> positions, Set<String> changedKeys,
+                                    List<String> orderedKeys, String componentKey, int target) {
+        // orderedKeys为不含被移动组件的显示顺序，只修改被移动组件和必要的前序组件，记入changedKeys
+        // 目标位置之前还没有排序位置的组件需要先固定下来，只在首次移动到该区域时发生
+        Long previousPosition = null;
+        for (int i = 0; i < target; i++) {
+            String previous = orderedKeys.get(i);
+            Long position = positions.get(previous);
+            if (position == null) {
+                position = previousPosition != null ? previousPosition + ORDER_GAP : 0;
+                setOrderPosition(positions, changedKeys, previous, position);
+            }
+            previousPosition = position;
+        }
+
+        Long nextPosition = target < orderedKeys.size() ? positions.get(orderedKeys.get(target)) : null;
+        if (previousPosition == null) {
+            setOrderPosition(positions, changedKeys, componentKey, nextPosition != null ? nextPosition - ORDER_GAP : 0);
+        } else if (nextPosition == null) {
+            setOrderPosition(positions, changedKeys, componentKey, previousPosition + ORDER_GAP);
+        } else if (nextPosition - previousPosition > 1) {
+            setOrderPosition(positions, changedKeys, componentKey,
+                    previousPosition + (nextPosition - previousPosition) / 2);
+        } else {
+            // 间隔已用完，重新均匀分配所有已排序组件的位置，这种情况极少发生
+            List<String> renumbered = new ArrayList<>(orderedKeys);
+            renumbered.add(target, componentKey);
+            positions.put(componentKey, previousPosition);
+            renumberOrderPositions(positions, changedKeys, renumbered);
+        }
+    }
+
+    private void republishApps() {
+        // 隐藏或移动后立即重新发布应用列表，主界面按新的顺序刷新，不必等到下次同步
+        AppCatalog.getInstance(context).republish();
+    }
+
+    private static void setOrderPosition(Map<String, Long> positions, Set<String> changedKeys,
+                                         String componentKey, long position) {
+        positions.put(componentKey, position);
+        changedKeys.add(componentKey);
+    }
+
+    private static void renumberOrderPositions(Map<String, Long> positions, Set<String> changedKeys,
+                                               List<String> orderedKeys) {
+        long position = 0;
+        for (String componentKey : orderedKeys) {
+            if (positions.containsKey(componentKey)) {
+                setOrderPosition(positions, changedKeys, componentKey, position);
+                position += ORDER_GAP;
+            }
+        }
+    }
+
+    public static class AppItem {
+        public String packageName;
+        public String className;
+        public String label;
+        public long versionCode;
+
+        public AppItem(String packageName, String className, String label, long versionCode) {
+            this.packageName = packageName;
+            this.className = className;
+            this.label = label;
+            this.versionCode = versionCode;
+        }
+
+        public String getComponentKey() {
+            return componentKey(packageName, className);
+        }
+
+        public static String componentKey(String packageName, String className) {
+            return packageName + "/" + className;
+        }
     }
-}
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+package com.emotn.launcher.manager;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+public class AppSearchIndex {
+
+    // GB2312一级汉字按拼音排序，每个声母对应的起始区位码
+    private static final int[] GB2312_INITIAL_BOUNDARIES = {
+            1601, 1637, 1833, 2078, 2274, 2302, 2433, 2594, 2787, 3106, 3212,
+            3472, 3635, 3722, 3730, 3858, 4027, 4086, 4390, 4558, 4684, 4925, 5249, 5590
+    };
+    private static final char[] GB2312_INITIALS = {
+            'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k', 'l',
+            'm', 'n', 'o', 'p', 'q', 'r', 's', 't', 'w', 'x', 'y', 'z'
+    };
+
+    private static class Entry {
+        final String key;
+        final AppManager.AppItem item;
+
+        Entry(String key, AppManager.AppItem item) {
+            this.key = key;
+            this.item = item;
+        }
+    }
+
+    // 按key排序的索引项，前缀查询用二分查找定位
+    private final List<Entry> entries = new ArrayList<>();
+    private final Map<String, AppManager.AppItem> indexedItems = new HashMap<>();
+    private final CharsetEncoder gb2312Encoder;
+
+    public AppSearchIndex() {
+        CharsetEncoder encoder = null;
+        try {
+            encoder = Charset.forName("GB2312").newEncoder();
+        } catch (IllegalArgumentException e) {
+            // 不支持GB2312时只索引名称本身
+        }
+        this.gb2312Encoder = encoder;
+    }
+
+    public void update(List<AppManager.AppItem> apps) {
+        // 只为新增、删除或变化的应用更新索引项
+        Map<String, AppManager.AppItem> currentItems = new HashMap<>();
+        for (AppManager.AppItem item : apps) {
+            currentItems.put(item.getComponentKey(), item);
+        }
+
+        Iterator<Map.Entry<String, AppManager.AppItem>> iterator = indexedItems.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, AppManager.AppItem> indexed = iterator.next();
+            if (currentItems.get(indexed.getKey()) != indexed.getValue()) {
+                removeEntries(indexed.getValue());
+                iterator.remove();
+            }
+        }
+
+        for (AppManager.AppItem item : apps) {
+            if (!indexedItems.containsKey(item.getComponentKey())) {
+                addEntries(item);
+                indexedItems.put(item.getComponentKey(), item);
+            }
+        }
+    }
+
+    public List<AppManager.AppItem> search(String query) {
+        String prefix = normalize(query);
+        Set<AppManager.AppItem> results = new LinkedHashSet<>();
+        if (prefix.isEmpty()) {
+            return new ArrayList<>(results);
+        }
+
+        for (int i = lowerBound(prefix); i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (!entry.key.startsWith(prefix)) {
+                break;
+            }
+            results.add(entry.item);
+        }
+        return new ArrayList<>(results);
+    }
+
+    private void addEntries(AppManager.AppItem item) {
+        for (String key : buildKeys(item.label)) {
+            Entry entry = new Entry(key, item);
+            entries.add(lowerBound(key), entry);
+        }
+    }
+
+    private void removeEntries(AppManager.AppItem item) {
+        for (String key : buildKeys(item.label)) {
+            for (int i = lowerBound(key); i < entries.size() && entries.get(i).key.equals(key); i++) {
+                if (entries.get(i).item == item) {
+                    entries.remove(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entries.get(mid).key.compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private Set<String> buildKeys(String label) {
+        // 索引完整名称、每个单词开头以及拼音首字母
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(label);
+        if (!normalized.isEmpty()) {
+            keys.add(normalized);
+        }
+
+        for (String word : label.split("[\\s\\p{Punct}]+")) {
+            String normalizedWord = normalize(word);
+            if (!normalizedWord.isEmpty()) {
+                keys.add(normalizedWord);
+            }
+        }
+
+        StringBuilder initials = new StringBuilder();
+        boolean hasHanzi = false;
+        for (int i = 0; i < label.length(); i++) {
+            char c = label.charAt(i);
+            char initial = getPinyinInitial(c);
+            if (initial != 0) {
+                initials.append(initial);
+                hasHanzi = true;
+            } else if (Character.isLetterOrDigit(c)) {
+                initials.append(Character.toLowerCase(c));
+            }
+        }
+        if (hasHanzi) {
+            keys.add(initials.toString());
+        }
+        return keys;
+    }
+
+    private char getPinyinInitial(char c) {
+        if (gb2312Encoder == null || Character.UnicodeScript.of(c) != Character.UnicodeScript.HAN) {
+            return 0;
+        }
+        ByteBuffer bytes;
+        try {
+            bytes = gb2312Encoder.encode(CharBuffer.wrap(new char[]{c}));
+        } catch (CharacterCodingException e) {
+            return 0;
+        }
+        if (bytes.remaining() != 2) {
+            return 0;
+        }
+
+        int code = ((bytes.get(0) & 0xff) - 160) * 100 + ((bytes.get(1) & 0xff) - 160);
+        for (int i = 0; i < GB2312_INITIALS.length; i++) {
+            if (code >= GB2312_INITIAL_BOUNDARIES[i] && code < GB2312_INITIAL_BOUNDARIES[i + 1]) {
+                return GB2312_INITIALS[i];
+            }
+        }
+        // 二级汉字不按拼音排列，无法得到首字母
+        return 0;
+    }
+
+    private static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,87 @@
+package com.emotn.launcher.manager;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AppSnapshot {
+
+    private static final String TAG = "AppSnapshot";
+    private static final String FILE_NAME = "app_snapshot.bin";
+    private static final int MAGIC = 0x454D4150;
+    private static final int VERSION = 2;
+
+    private final File snapshotFile;
+
+    public AppSnapshot(Context context) {
+        this.snapshotFile = new File(context.getFilesDir(), FILE_NAME);
+    }
+
+    public List<AppManager.AppItem> load(String locale) {
+        List<AppManager.AppItem> apps = new ArrayList<>();
+        if (!snapshotFile.exists()) {
+            return apps;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                Log.d(TAG, "Snapshot format changed, ignoring");
+                return apps;
+            }
+            // 系统语言变化后应用名称需要重新加载
+            if (!locale.equals(in.readUTF())) {
+                return apps;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String packageName = in.readUTF();
+                String className = in.readUTF();
+                String label = in.readUTF();
+                long versionCode = in.readLong();
+                apps.add(new AppManager.AppItem(packageName, className, label, versionCode));
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error loading snapshot: " + e.getMessage());
+            apps.clear();
+        }
+        return apps;
+    }
+
+    public void save(List<AppManager.AppItem> apps, String locale) {
+        // 记录名称所用的语言，语言不同的快照不会被加载
+        File tempFile = new File(snapshotFile.getPath() + ".tmp");
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(locale);
+            out.writeInt(apps.size());
+            for (AppManager.AppItem app : apps) {
+                out.writeUTF(app.packageName);
+                out.writeUTF(app.className);
+                out.writeUTF(app.label);
+                out.writeLong(app.versionCode);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error saving snapshot: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+
+        // 先写临时文件再替换，避免进程被杀时留下半个快照
+        if (!tempFile.renameTo(snapshotFile)) {
+            Log.e(TAG, "Error replacing snapshot file");
+            tempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.emotn.launcher.manager;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class IconCache {
+
+    private static final String TAG = "IconCache";
+    private static final String CACHE_DIR_NAME = "icon_cache";
+    // 图标区域尺寸，已去掉app_icon_bg的内边距
+    private static final int ICON_SIZE_DP = 104;
+    private static final int DECODE_THREADS = 2;
+    private static final String ICON_SUFFIX = ".png";
+
+    private static IconCache instance;
+
+    private final PackageManager packageManager;
+    private final File cacheDir;
+    private final int densityDpi;
+    private final int iconSize;
+    private final LruCache<String, Bitmap> memoryCache;
+    private final ExecutorService decodeExecutor;
+    private final Handler mainHandler;
+    // 占位图透明，图标背景框本身就是占位效果
+    private final Drawable placeholder = new ColorDrawable(Color.TRANSPARENT);
+
+    public static synchronized IconCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new IconCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private IconCache(Context context) {
+        this.packageManager = context.getPackageManager();
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        this.densityDpi = context.getResources().getDisplayMetrics().densityDpi;
+        this.iconSize = Math.round(ICON_SIZE_DP * context.getResources().getDisplayMetrics().density);
+
+        // 内存缓存按字节数限制，最多占用堆上限的1/8
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / 8);
+        this.memoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+        this.decodeExecutor = Executors.newFixedThreadPool(DECODE_THREADS);
+        this.mainHandler = new Handler(Looper.getMainLooper());
+    }
+
+    public void loadIcon(AppManager.AppItem item, ImageView target) {
+        String key = getCacheKey(item);
+        target.setTag(key);
+
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            target.setImageBitmap(cached);
+            return;
+        }
+
+        target.setImageDrawable(placeholder);
+        decodeExecutor.execute(() -> {
+            Bitmap icon = getIcon(item);
+            mainHandler.post(() -> {
+                // 视图可能已被复用绑定到其他应用
+                if (icon != null && key.equals(target.getTag())) {
+                    target.setImageBitmap(icon);
+                }
+            });
+        });
+    }
+
+    public void preloadIcons(List<AppManager.AppItem> items) {
+        // 在一个解码线程中依次加载，另一个线程留给屏幕上图块的loadIcon请求
+        decodeExecutor.execute(() -> {
+            for (AppManager.AppItem item : items) {
+                getIcon(item);
+            }
+        });
+    }
+
+    public Bitmap getIcon(AppManager.AppItem item) {
+        // 依次查找内存缓存、磁盘缓存，最后才从应用APK中加载
+        String key = getCacheKey(item);
+        Bitmap icon = memoryCache.get(key);
+        if (icon != null) {
+            return icon;
+        }
+
+        File iconFile = new File(cacheDir, key + ICON_SUFFIX);
+        if (iconFile.exists()) {
+            icon = BitmapFactory.decodeFile(iconFile.getAbsolutePath());
+        }
+        if (icon == null) {
+            icon = loadFromPackage(item);
+            if (icon == null) {
+                return null;
+            }
+            writeToDisk(item, iconFile, icon);
+        }
+
+        memoryCache.put(key, icon);
+        return icon;
+    }
+
+    private Bitmap loadFromPackage(AppManager.AppItem item) {
+        Drawable drawable;
+        try {
+            drawable = packageManager.getActivityIcon(new ComponentName(item.packageName, item.className));
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "Error loading icon: " + e.getMessage());
+            return null;
+        }
+        return renderIcon(drawable);
+    }
+
+    private Bitmap renderIcon(Drawable drawable) {
+        // 预先缩放到显示尺寸，缓存中只保存最终大小的位图
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap source = ((BitmapDrawable) drawable).getBitmap();
+            if (source != null && source.getWidth() == iconSize && source.getHeight() == iconSize) {
+                return source;
+            }
+        }
+        Bitmap bitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, iconSize, iconSize);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    private void writeToDisk(AppManager.AppItem item, File iconFile, Bitmap icon) {
+        // 版本号变化时才失效：写入新版本前删除该组件已写完的旧版本图标
+        deleteIcons(item, iconFile.getName());
+
+        // 临时文件名唯一，应用目录线程和解码线程同时写入同一图标时互不干扰
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(getCacheKey(item), ".tmp", cacheDir);
+            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                icon.compress(Bitmap.CompressFormat.PNG, 100, fos);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error caching icon: " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return;
+        }
+        if (!tempFile.renameTo(iconFile)) {
+            tempFile.delete();
+        }
+    }
+
+    public void removeIcons(AppManager.AppItem item) {
+        // 应用被卸载时清理该组件的所有缓存图标
+        memoryCache.remove(getCacheKey(item));
+        deleteIcons(item, null);
+    }
+
+    private void deleteIcons(AppManager.AppItem item, String keepName) {
+        // 只删除已完成的图标文件，其他线程正在写入的临时文件不受影响
+        String componentPrefix = getComponentPrefix(item);
+        File[] files = cacheDir.listFiles((dir, name) -> name.startsWith(componentPrefix)
+                && name.endsWith(ICON_SUFFIX) && !name.equals(keepName));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    public void clearMemory() {
+        memoryCache.evictAll();
+    }
+
+    private String getCacheKey(AppManager.AppItem item) {
+        return getComponentPrefix(item) + item.versionCode + "#" + densityDpi;
+    }
+
+    private static String getComponentPrefix(AppManager.AppItem item) {
+        return item.packageName + "#" + item.className + "#";
+    }
+}
@@ -0,0 +1,303 @@
+package com.emotn.launcher.manager;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+import android.util.Log;
+
+import com.emotn.launcher.utils.BitmapDecoder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ThumbnailCache {
+
+    private static final String TAG = "ThumbnailCache";
+    private static final String JOURNAL_FILE = "journal";
+    private static final String FILE_SUFFIX = ".webp";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String OP_PUT = "PUT";
+    private static final String OP_GET = "GET";
+    private static final String OP_DEL = "DEL";
+    private static final int COMPRESS_QUALITY = 80;
+    // 日志中的冗余记录超过该数量时重写日志
+    private static final int JOURNAL_COMPACT_THRESHOLD = 500;
+
+    private static ThumbnailCache instance;
+
+    private final File cacheDir;
+    private final File journalFile;
+    private final long maxBytes;
+    // 内存索引：key -> 文件大小，按访问顺序排列，最久未用的在最前
+    private final LinkedHashMap<String, Long> index = new LinkedHashMap<>(64, 0.75f, true);
+    private long totalBytes;
+    private int redundantOps;
+    private Writer journalWriter;
+
+    public static synchronized ThumbnailCache getInstance(File cacheDir, long maxBytes) {
+        if (instance == null) {
+            instance = new ThumbnailCache(cacheDir, maxBytes);
+        }
+        return instance;
+    }
+
+    ThumbnailCache(File cacheDir, long maxBytes) {
+        this.cacheDir = cacheDir;
+        this.journalFile = new File(cacheDir, JOURNAL_FILE);
+        this.maxBytes = maxBytes;
+        if (!cacheDir.exists()) {
+            cacheDir.mkdirs();
+        }
+        if (!readJournal()) {
+            rebuildFromDirectory();
+        } else {
+            deleteTempFiles();
+        }
+        trimToSize();
+    }
+
+    public static String getKey(String path, long size, long lastModified) {
+        // 以路径、大小和修改时间为key，同一路径的文件被替换后不会命中旧缩略图
+        String source = path + "|" + size + "|" + lastModified;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(source.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(source.hashCode()) + Long.toHexString(size) + Long.toHexString(lastModified);
+        }
+    }
+
+    public Bitmap get(String key) {
+        synchronized (this) {
+            if (index.get(key) == null) {
+                return null;
+            }
+            appendJournal(OP_GET, key, 0);
+        }
+
+        Bitmap bitmap = BitmapDecoder.decodeFile(getFile(key), 0, 0);
+        if (bitmap == null) {
+            remove(key);
+        }
+        return bitmap;
+    }
+
+    public synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    public void put(String key, Bitmap bitmap) {
+        // 临时文件名唯一，多个线程同时写入同一缩略图时互不覆盖；重命名成功后才记入索引和日志
+        File file = getFile(key);
+        File tempFile = null;
+        try {
+            tempFile = File.createTempFile(key, TEMP_SUFFIX, cacheDir);
+            try (FileOutputStream fos = new FileOutputStream(tempFile)) {
+                if (!bitmap.compress(getCompressFormat(), COMPRESS_QUALITY, fos)) {
+                    throw new IOException("compress failed");
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing thumbnail: " + e.getMessage());
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+            return;
+        }
+
+        synchronized (this) {
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return;
+            }
+            Long previous = index.put(key, file.length());
+            if (previous != null) {
+                totalBytes -= previous;
+                redundantOps++;
+            }
+            totalBytes += file.length();
+            appendJournal(OP_PUT, key, file.length());
+            trimToSize();
+        }
+    }
+
+    public synchronized void remove(String key) {
+        Long size = index.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+            getFile(key).delete();
+            appendJournal(OP_DEL, key, 0);
+        }
+    }
+
+    public synchronized void clear() {
+        closeJournal();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        index.clear();
+        totalBytes = 0;
+        redundantOps = 0;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private void trimToSize() {
+        // 超出容量时按LRU顺序淘汰
+        Iterator<Map.Entry<String, Long>> iterator = index.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            totalBytes -= eldest.getValue();
+            getFile(eldest.getKey()).delete();
+            appendJournal(OP_DEL, eldest.getKey(), 0);
+        }
+    }
+
+    private boolean readJournal() {
+        if (!journalFile.exists()) {
+            return false;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(journalFile))) {
+            String line;
+            int ops = 0;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split(" ");
+                if (parts.length < 2) {
+                    continue;
+                }
+                ops++;
+                if (OP_PUT.equals(parts[0]) && parts.length == 3) {
+                    Long previous = index.put(parts[1], Long.parseLong(parts[2]));
+                    totalBytes += Long.parseLong(parts[2]) - (previous != null ? previous : 0);
+                } else if (OP_GET.equals(parts[0])) {
+                    index.get(parts[1]);
+                } else if (OP_DEL.equals(parts[0])) {
+                    Long previous = index.remove(parts[1]);
+                    totalBytes -= previous != null ? previous : 0;
+                }
+            }
+            redundantOps = ops - index.size();
+            return true;
+        } catch (IOException | NumberFormatException e) {
+            Log.e(TAG, "Error reading journal, rebuilding: " + e.getMessage());
+            index.clear();
+            totalBytes = 0;
+            return false;
+        }
+    }
+
+    private void deleteTempFiles() {
+        // 清理上次进程退出时未写完的临时文件
+        File[] files = cacheDir.listFiles((dir, name) -> name.endsWith(TEMP_SUFFIX));
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void rebuildFromDirectory() {
+        // 没有日志时按文件修改时间重建索引，并清理旧格式的缓存文件
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(FILE_SUFFIX) && name.length() == 40 + FILE_SUFFIX.length()) {
+                    index.put(name.substring(0, 40), file.length());
+                    totalBytes += file.length();
+                } else if (!file.equals(journalFile)) {
+                    file.delete();
+                }
+            }
+        }
+        rewriteJournal();
+    }
+
+    private void rewriteJournal() {
+        closeJournal();
+        File tempFile = new File(cacheDir, JOURNAL_FILE + TEMP_SUFFIX);
+        try (Writer writer = new BufferedWriter(new FileWriter(tempFile))) {
+            for (Map.Entry<String, Long> entry : index.entrySet()) {
+                writer.write(OP_PUT + " " + entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error rewriting journal: " + e.getMessage());
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(journalFile)) {
+            tempFile.delete();
+        }
+        redundantOps = 0;
+    }
+
+    private void appendJournal(String op, String key, long size) {
+        if (op.equals(OP_GET) || op.equals(OP_DEL)) {
+            redundantOps++;
+        }
+        if (redundantOps > JOURNAL_COMPACT_THRESHOLD && redundantOps > index.size()) {
+            rewriteJournal();
+            return;
+        }
+
+        try {
+            if (journalWriter == null) {
+                journalWriter = new BufferedWriter(new FileWriter(journalFile, true));
+            }
+            journalWriter.write(op + " " + key + (op.equals(OP_PUT) ? " " + size : "") + "\n");
+            journalWriter.flush();
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing journal: " + e.getMessage());
+            closeJournal();
+        }
+    }
+
+    private void closeJournal() {
+        if (journalWriter != null) {
+            try {
+                journalWriter.close();
+            } catch (IOException e) {
+                // 忽略关闭异常
+            }
+            journalWriter = null;
+        }
+    }
+
+    private File getFile(String key) {
+        return new File(cacheDir, key + FILE_SUFFIX);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Bitmap.CompressFormat getCompressFormat() {
+        // API 30起WEBP拆分为有损和无损两种格式，旧版本的WEBP在质量小于100时即为有损
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return Bitmap.CompressFormat.WEBP_LOSSY;
+        }
+        return Bitmap.CompressFormat.WEBP;
+    }
+}
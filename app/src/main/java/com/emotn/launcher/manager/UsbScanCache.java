@@ -0,0 +1,255 @@
+package com.emotn.launcher.manager;
+
+import android.content.Context;
+import android.os.storage.StorageManager;
+import android.os.storage.StorageVolume;
+import android.util.Log;
+
+import com.emotn.launcher.utils.FileTreeWalker;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public class UsbScanCache {
+
+    private static final String TAG = "UsbScanCache";
+    private static final String CACHE_DIR_NAME = "usb_scan";
+    private static final int FORMAT_VERSION = 1;
+    // 最多记住的U盘数量，超出时删除最久未插入的
+    private static final int MAX_VOLUMES = 16;
+    private static final String MOUNTS_FILE = "/proc/mounts";
+    // 这些文件系统在增删文件时一定更新目录修改时间；FAT和exFAT在电脑上修改后不一定更新，根目录甚至没有修改时间
+    private static final Set<String> RELIABLE_FILESYSTEMS = new HashSet<>(Arrays.asList(
+            "ext2", "ext3", "ext4", "f2fs", "ntfs3", "btrfs", "xfs"
+    ));
+    // 存储卷在/storage下通常是这些转发层，真实的文件系统另外挂载在/mnt/media_rw下
+    private static final Set<String> FORWARDING_FILESYSTEMS = new HashSet<>(Arrays.asList(
+            "fuse", "sdcardfs", "esdfs"
+    ));
+
+    private static UsbScanCache instance;
+
+    private final StorageManager storageManager;
+    private final File cacheDir;
+
+    public static synchronized UsbScanCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsbScanCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UsbScanCache(Context context) {
+        this.storageManager = context.getSystemService(StorageManager.class);
+        this.cacheDir = new File(context.getCacheDir(), CACHE_DIR_NAME);
+        cacheDir.mkdirs();
+    }
+
+    public VolumeCache open(String volumePath) {
+        // 按存储卷UUID读取上次的扫描结果，需在后台线程调用；没有UUID的卷不缓存
+        File root = new File(volumePath);
+        StorageVolume volume = storageManager != null ? storageManager.getStorageVolume(root) : null;
+        String uuid = volume != null ? volume.getUuid() : null;
+        if (uuid == null) {
+            return null;
+        }
+        // 目录修改时间不可靠的卷每次都完整列出目录，缓存只用于插入后先显示上次的结果
+        boolean reuseListings = hasReliableDirectoryTimes(readMounts(), root.getAbsolutePath(), uuid);
+        Log.d(TAG, "Volume " + uuid + (reuseListings ? " reuses" : " relists") + " unchanged directories");
+        VolumeCache cache = new VolumeCache(root, new File(cacheDir, uuid), reuseListings);
+        cache.load();
+        return cache;
+    }
+
+    static boolean hasReliableDirectoryTimes(List<String> mounts, String volumePath, String uuid) {
+        // 按挂载点或UUID找到该卷的所有挂载记录，只有确认底层文件系统可靠时才复用目录列表
+        boolean reliable = false;
+        for (String line : mounts) {
+            String[] parts = line.split(" ");
+            if (parts.length < 3) {
+                continue;
+            }
+            String mountPoint = parts[1];
+            if (!mountPoint.equals(volumePath) && !mountPoint.endsWith("/" + uuid)) {
+                continue;
+            }
+            String type = parts[2];
+            if (RELIABLE_FILESYSTEMS.contains(type)) {
+                reliable = true;
+            } else if (!FORWARDING_FILESYSTEMS.contains(type)) {
+                return false;
+            }
+        }
+        return reliable;
+    }
+
+    private static List<String> readMounts() {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(MOUNTS_FILE))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading mounts: " + e.getMessage());
+        }
+        return lines;
+    }
+
+    private static void trim(File cacheDir) {
+        File[] files = cacheDir.listFiles();
+        if (files == null || files.length <= MAX_VOLUMES) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(b.lastModified(), a.lastModified()));
+        for (int i = MAX_VOLUMES; i < files.length; i++) {
+            files[i].delete();
+        }
+    }
+
+    public static class VolumeCache implements FileTreeWalker.DirectoryCache {
+        private final File root;
+        private final File file;
+        private final boolean reuseListings;
+        // 以相对卷根目录的路径为键，卷挂载到不同位置时仍然有效
+        private final Map<String, FileTreeWalker.Listing> listings = new LinkedHashMap<>();
+        // 本次扫描中仍然存在的目录，保存时丢弃其余已删除的目录
+        private final Set<String> touched = new HashSet<>();
+
+        VolumeCache(File root, File file, boolean reuseListings) {
+            this.root = root;
+            this.file = file;
+            this.reuseListings = reuseListings;
+        }
+
+        public List<WallpaperManager.WallpaperItem> getItems(WallpaperManager wallpaperManager) {
+            List<WallpaperManager.WallpaperItem> items = new ArrayList<>();
+            for (Map.Entry<String, FileTreeWalker.Listing> entry : listings.entrySet()) {
+                File directory = new File(root.getAbsolutePath() + entry.getKey());
+                for (FileTreeWalker.FileEntry fileEntry : entry.getValue().files) {
+                    WallpaperManager.WallpaperItem item = wallpaperManager.createWallpaperItem(
+                            new File(directory, fileEntry.name), fileEntry.size, fileEntry.lastModified);
+                    if (item != null) {
+                        items.add(item);
+                    }
+                }
+            }
+            return items;
+        }
+
+        @Override
+        public FileTreeWalker.Listing get(File directory, long lastModified) {
+            if (!reuseListings) {
+                return null;
+            }
+            String key = getRelativePath(directory);
+            FileTreeWalker.Listing listing = listings.get(key);
+            if (listing == null || listing.lastModified != lastModified) {
+                return null;
+            }
+            touched.add(key);
+            return listing;
+        }
+
+        @Override
+        public void put(File directory, FileTreeWalker.Listing listing) {
+            // 只保存壁纸文件，其余文件在重新扫描时用不到
+            FileTreeWalker.Listing filtered = new FileTreeWalker.Listing(listing.lastModified);
+            filtered.directories.addAll(listing.directories);
+            for (FileTreeWalker.FileEntry entry : listing.files) {
+                if (WallpaperManager.isSupportedWallpaper(entry.name)) {
+                    filtered.files.add(entry);
+                }
+            }
+            String key = getRelativePath(directory);
+            listings.put(key, filtered);
+            touched.add(key);
+        }
+
+        public void save() {
+            // 只在完整扫描后调用，写入临时文件后替换，中途失败不会留下损坏的缓存
+            listings.keySet().retainAll(touched);
+            File temp = new File(file.getPath() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(listings.size());
+                for (Map.Entry<String, FileTreeWalker.Listing> entry : listings.entrySet()) {
+                    FileTreeWalker.Listing listing = entry.getValue();
+                    out.writeUTF(entry.getKey());
+                    out.writeLong(listing.lastModified);
+                    out.writeInt(listing.directories.size());
+                    for (String directory : listing.directories) {
+                        out.writeUTF(directory);
+                    }
+                    out.writeInt(listing.files.size());
+                    for (FileTreeWalker.FileEntry fileEntry : listing.files) {
+                        out.writeUTF(fileEntry.name);
+                        out.writeLong(fileEntry.size);
+                        out.writeLong(fileEntry.lastModified);
+                    }
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving scan cache: " + e.getMessage());
+                temp.delete();
+                return;
+            }
+            if (!temp.renameTo(file)) {
+                temp.delete();
+            }
+            trim(file.getParentFile());
+        }
+
+        void load() {
+            if (!file.exists()) {
+                return;
+            }
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new FileInputStream(file)))) {
+                if (in.readInt() != FORMAT_VERSION) {
+                    return;
+                }
+                int listingCount = in.readInt();
+                for (int i = 0; i < listingCount; i++) {
+                    String key = in.readUTF();
+                    FileTreeWalker.Listing listing = new FileTreeWalker.Listing(in.readLong());
+                    int directoryCount = in.readInt();
+                    for (int j = 0; j < directoryCount; j++) {
+                        listing.directories.add(in.readUTF());
+                    }
+                    int fileCount = in.readInt();
+                    for (int j = 0; j < fileCount; j++) {
+                        listing.files.add(new FileTreeWalker.FileEntry(in.readUTF(), in.readLong(), in.readLong()));
+                    }
+                    listings.put(key, listing);
+                }
+                // 更新修改时间，清理时按最近插入的顺序保留
+                file.setLastModified(System.currentTimeMillis());
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading scan cache: " + e.getMessage());
+                listings.clear();
+            }
+        }
+
+        private String getRelativePath(File directory) {
+            String path = directory.getAbsolutePath();
+            String rootPath = root.getAbsolutePath();
+            return path.startsWith(rootPath) ? path.substring(rootPath.length()) : path;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.emotn.launcher.manager;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.widget.Toast;
+
+import com.emotn.launcher.R;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class UsbScanEngine {
+
+    private static final String TAG = "UsbScanEngine";
+    public static final String ACTION_USB_WALLPAPERS_SCANNED = "com.emotn.launcher.USB_WALLPAPERS_SCANNED";
+    public static final String EXTRA_TOTAL_WALLPAPERS = "total_wallpapers";
+
+    public interface ScanListener {
+        void onWallpaperFound(ScanJob job, WallpaperManager.WallpaperItem item);
+
+        void onWallpaperRemoved(ScanJob job, WallpaperManager.WallpaperItem item);
+
+        void onScanFinished(ScanJob job);
+    }
+
+    private static UsbScanEngine instance;
+
+    private final Context context;
+    private final WallpaperManager wallpaperManager;
+    private final UsbScanCache scanCache;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 读写扫描缓存，与缩略图生成分开，避免新插入的U盘等待上一个U盘的缩略图
+    private final ExecutorService cacheExecutor = Executors.newSingleThreadExecutor();
+    // 扫描完成后在后台预生成缩略图写入磁盘缓存，导入界面的文件列表加载缩略图时直接从磁盘缓存读取
+    private final ExecutorService thumbnailExecutor = Executors.newSingleThreadExecutor();
+    // 每个存储卷最多一个进行中的扫描，所有方法都在主线程调用
+    private final Map<String, ScanJob> activeJobs = new HashMap<>();
+    // 扫描已完成、仍在预生成缩略图的任务
+    private final List<ScanJob> warmingJobs = new ArrayList<>();
+
+    public static synchronized UsbScanEngine getInstance(Context context) {
+        if (instance == null) {
+            instance = new UsbScanEngine(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private UsbScanEngine(Context context) {
+        this.context = context;
+        this.wallpaperManager = new WallpaperManager(context);
+        this.scanCache = UsbScanCache.getInstance(context);
+    }
+
+    public ScanJob requestScan(String volumePath, ScanListener listener) {
+        // 同一存储卷重复的扫描请求合并到进行中的任务，新加入的监听先补发已找到的结果
+        ScanJob job = activeJobs.get(volumePath);
+        if (job == null) {
+            job = new ScanJob(volumePath);
+            activeJobs.put(volumePath, job);
+            startJob(job);
+        } else {
+            Log.d(TAG, "Joining scan in progress for " + volumePath);
+        }
+
+        if (listener == null) {
+            // 没有界面等待结果的扫描，完成后以提示告知用户
+            job.announce = true;
+        } else if (!job.listeners.contains(listener)) {
+            job.listeners.add(listener);
+            for (WallpaperManager.WallpaperItem item : job.items.values()) {
+                listener.onWallpaperFound(job, item);
+            }
+        }
+        return job;
+    }
+
+    public void removeListener(ScanListener listener) {
+        for (ScanJob job : activeJobs.values()) {
+            job.listeners.remove(listener);
+        }
+    }
+
+    public void cancel(String volumePath) {
+        ScanJob job = activeJobs.get(volumePath);
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    public static void cancelScans(String volumePath) {
+        // 存储卷开始卸载或弹出时目录仍然存在，按卷路径停止扫描和缩略图生成
+        if (instance == null) {
+            return;
+        }
+        ScanJob job = instance.activeJobs.get(volumePath);
+        if (job != null) {
+            job.cancel();
+        }
+        for (ScanJob warmingJob : instance.warmingJobs) {
+            if (warmingJob.volumePath.equals(volumePath)) {
+                warmingJob.cancel();
+            }
+        }
+    }
+
+    public static void cancelDetachedScans() {
+        // USB断开时没有卷路径，停止存储卷已不存在的扫描和缩略图生成
+        if (instance == null) {
+            return;
+        }
+        for (ScanJob job : instance.activeJobs.values()) {
+            if (!new File(job.volumePath).exists()) {
+                job.cancel();
+            }
+        }
+    }
+
+    private void startJob(ScanJob job) {
+        // 先显示上次插入时的扫描结果，再在后台只重新列出修改时间变化的目录
+        cacheExecutor.execute(() -> {
+            UsbScanCache.VolumeCache cache = scanCache.open(job.volumePath);
+            List<WallpaperManager.WallpaperItem> cachedItems = cache != null
+                    ? cache.getItems(wallpaperManager) : new ArrayList<>();
+            mainHandler.post(() -> {
+                if (job.isCancelled()) {
+                    finishJob(job);
+                    return;
+                }
+                Log.d(TAG, "Loaded " + cachedItems.size() + " cached wallpapers for " + job.volumePath);
+                for (WallpaperManager.WallpaperItem item : cachedItems) {
+                    addItem(job, item);
+                }
+                job.cache = cache;
+                startScan(job);
+            });
+        });
+    }
+
+    private void startScan(ScanJob job) {
+        Log.d(TAG, "Scanning USB wallpapers from " + job.volumePath);
+        job.task = wallpaperManager.scanWallpapersAsync(job.volumePath, job.cache, new WallpaperManager.ScanListener() {
+            @Override
+            public void onWallpaperFound(WallpaperManager.WallpaperItem item) {
+                job.seenPaths.add(item.path);
+                addItem(job, item);
+            }
+
+            @Override
+            public void onScanFinished(WallpaperManager.ScanTask task) {
+                finishJob(job);
+            }
+        });
+    }
+
+    private void addItem(ScanJob job, WallpaperManager.WallpaperItem item) {
+        // 缓存中已显示且大小和修改时间未变的文件不再重复通知
+        WallpaperManager.WallpaperItem existing = job.items.get(item.path);
+        if (existing != null) {
+            if (existing.size == item.size && existing.lastModified == item.lastModified) {
+                return;
+            }
+            notifyRemoved(job, existing);
+        }
+        job.items.put(item.path, item);
+        for (ScanListener listener : new ArrayList<>(job.listeners)) {
+            listener.onWallpaperFound(job, item);
+        }
+    }
+
+    private void notifyRemoved(ScanJob job, WallpaperManager.WallpaperItem item) {
+        for (ScanListener listener : new ArrayList<>(job.listeners)) {
+            listener.onWallpaperRemoved(job, item);
+        }
+    }
+
+    private void finishJob(ScanJob job) {
+        if (activeJobs.get(job.volumePath) == job) {
+            activeJobs.remove(job.volumePath);
+        }
+        boolean complete = job.task != null && !job.task.isCancelled() && !job.isCancelled()
+                && !job.isVolumeDetached();
+        if (complete) {
+            // 缓存中有但本次扫描没有找到的文件已被删除
+            Iterator<WallpaperManager.WallpaperItem> iterator = job.items.values().iterator();
+            while (iterator.hasNext()) {
+                WallpaperManager.WallpaperItem item = iterator.next();
+                if (!job.seenPaths.contains(item.path)) {
+                    iterator.remove();
+                    notifyRemoved(job, item);
+                }
+            }
+            Log.d(TAG, "Found " + job.items.size() + " wallpapers in " + job.volumePath + ", "
+                    + job.task.getDirectoriesReused() + " directories reused from cache");
+        }
+        for (ScanListener listener : new ArrayList<>(job.listeners)) {
+            listener.onScanFinished(job);
+        }
+
+        if (!complete) {
+            return;
+        }
+        UsbScanCache.VolumeCache cache = job.cache;
+        if (cache != null) {
+            cacheExecutor.execute(cache::save);
+        }
+        if (job.announce) {
+            announceResult(job);
+        }
+        warmThumbnails(job);
+    }
+
+    private void warmThumbnails(ScanJob job) {
+        List<WallpaperManager.WallpaperItem> items = job.getItems();
+        warmingJobs.add(job);
+        thumbnailExecutor.execute(() -> {
+            for (WallpaperManager.WallpaperItem item : items) {
+                if (job.isCancelled() || !new File(job.volumePath).exists()) {
+                    break;
+                }
+                wallpaperManager.warmThumbnail(item);
+            }
+            mainHandler.post(() -> warmingJobs.remove(job));
+        });
+    }
+
+    private void announceResult(ScanJob job) {
+        int totalWallpapers = job.items.size();
+        if (totalWallpapers > 0) {
+            String message = context.getString(R.string.usb_scan_wallpaper) + "\n" +
+                    context.getString(R.string.found) + " " + totalWallpapers + " " +
+                    context.getString(R.string.wallpapers);
+            Toast.makeText(context, message, Toast.LENGTH_LONG).show();
+            // 通知主界面更新壁纸列表
+            Intent broadcastIntent = new Intent(ACTION_USB_WALLPAPERS_SCANNED);
+            broadcastIntent.setPackage(context.getPackageName());
+            broadcastIntent.putExtra(EXTRA_TOTAL_WALLPAPERS, totalWallpapers);
+            context.sendBroadcast(broadcastIntent);
+        } else {
+            Toast.makeText(context, R.string.no_wallpapers_found, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    public static class ScanJob {
+        private final String volumePath;
+        // 以路径为键，扫描结果与缓存中的同一文件合并
+        private final Map<String, WallpaperManager.WallpaperItem> items = new LinkedHashMap<>();
+        private final Set<String> seenPaths = new HashSet<>();
+        private final List<ScanListener> listeners = new ArrayList<>();
+        private UsbScanCache.VolumeCache cache;
+        private WallpaperManager.ScanTask task;
+        private boolean announce;
+        private volatile boolean cancelled;
+
+        ScanJob(String volumePath) {
+            this.volumePath = volumePath;
+        }
+
+        public String getVolumePath() {
+            return volumePath;
+        }
+
+        public List<WallpaperManager.WallpaperItem> getItems() {
+            return new ArrayList<>(items.values());
+        }
+
+        public boolean isVolumeDetached() {
+            return task != null && task.isVolumeDetached();
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (task != null) {
+                task.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package com.emotn.launcher.manager;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.emotn.launcher.utils.FileFingerprint;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class WallpaperImporter {
+
+    private static final String TAG = "WallpaperImporter";
+    private static final String LIBRARY_DIR_NAME = "wallpapers";
+    private static final String PARTIAL_DIR_NAME = ".partial";
+    private static final String PARTIAL_SUFFIX = ".part";
+    // 每次通道读写的块大小，块之间检查取消和U盘拔出
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    // 续传时回退的字节数，中断前最后写入的数据可能不完整
+    private static final long RESUME_ROLLBACK = 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    // U盘拔出后保留的未完成部分，超过该时间仍未续传的在启动时清理
+    private static final long PARTIAL_MAX_AGE_MS = 7L * 24 * 60 * 60 * 1000;
+
+    public static final int RESULT_SUCCESS = 0;
+    public static final int RESULT_CANCELLED = 1;
+    public static final int RESULT_DETACHED = 2;
+    public static final int RESULT_NO_SPACE = 3;
+    public static final int RESULT_VERIFY_FAILED = 4;
+    public static final int RESULT_IO_ERROR = 5;
+    public static final int RESULT_DUPLICATE = 6;
+
+    public interface ImportListener {
+        void onProgress(ImportTask task, long copiedBytes, long totalBytes, double bytesPerSecond, long etaMs);
+
+        void onFinished(ImportTask task, int result, WallpaperLibrary.Record record);
+    }
+
+    private static WallpaperImporter instance;
+
+    private final WallpaperLibrary library;
+    private final File libraryDir;
+    private final File partialDir;
+    // 导入按顺序执行，多个文件同时从U盘读取只会更慢
+    private final ExecutorService importExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Set<ImportTask> activeImports = ConcurrentHashMap.newKeySet();
+
+    public static synchronized WallpaperImporter getInstance(Context context) {
+        if (instance == null) {
+            instance = new WallpaperImporter(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WallpaperImporter(Context context) {
+        this.library = WallpaperLibrary.getInstance(context);
+        this.libraryDir = new File(context.getFilesDir(), LIBRARY_DIR_NAME);
+        this.partialDir = new File(libraryDir, PARTIAL_DIR_NAME);
+        partialDir.mkdirs();
+        importExecutor.execute(this::deleteStalePartials);
+    }
+
+    public ImportTask importWallpaper(WallpaperManager.WallpaperItem source, ImportListener listener) {
+        ImportTask task = new ImportTask(source, listener);
+        activeImports.add(task);
+        importExecutor.execute(() -> {
+            int result;
+            WallpaperLibrary.Record record = null;
+            try {
+                // 先用抽样指纹查找库中相同的文件，已导入过的不再复制
+                File sourceFile = new File(source.path);
+                String fingerprint = FileFingerprint.sampled(sourceFile, source.size);
+                record = findDuplicate(task, sourceFile, fingerprint);
+                if (record != null) {
+                    result = RESULT_DUPLICATE;
+                } else {
+                    File imported = copy(task);
+                    result = task.result;
+                    if (imported != null) {
+                        record = library.add(createImportedItem(source, imported), fingerprint, task.contentHash);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                // 复制过程中源文件消失，说明U盘已被拔出；存储卷卸载时也可能抛出SecurityException等运行时异常
+                result = new File(source.path).exists() ? RESULT_IO_ERROR : RESULT_DETACHED;
+                Log.e(TAG, "Error importing wallpaper: " + e.getMessage());
+            } finally {
+                activeImports.remove(task);
+            }
+            // 只有U盘拔出时保留已复制的部分用于续传，其他结果都删除
+            if (result != RESULT_DETACHED) {
+                getPartialFile(source).delete();
+            }
+            int finalResult = result;
+            WallpaperLibrary.Record finalRecord = record;
+            mainHandler.post(() -> {
+                ImportListener taskListener = task.listener;
+                if (taskListener != null) {
+                    taskListener.onFinished(task, finalResult, finalRecord);
+                }
+            });
+        });
+        return task;
+    }
+
+    public static void cancelDetachedImports() {
+        // 源文件已不存在的导入立即停止
+        if (instance == null) {
+            return;
+        }
+        for (ImportTask task : instance.activeImports) {
+            if (!new File(task.source.path).exists()) {
+                task.detached = true;
+                task.cancel();
+            }
+        }
+    }
+
+    public static void cancelImports(String volumePath) {
+        // 存储卷开始卸载时源文件可能仍然存在，按卷路径直接停止；保留已复制的部分用于续传
+        if (instance == null) {
+            return;
+        }
+        for (ImportTask task : instance.activeImports) {
+            if (WallpaperManager.isOnVolume(task.source.path, volumePath)) {
+                task.detached = true;
+                task.cancel();
+            }
+        }
+    }
+
+    private WallpaperLibrary.Record findDuplicate(ImportTask task, File sourceFile, String fingerprint)
+            throws IOException {
+        List<WallpaperLibrary.Record> candidates = library.findByFingerprint(fingerprint);
+        WallpaperManager.WallpaperItem source = task.source;
+        for (WallpaperLibrary.Record candidate : candidates) {
+            if (!new File(candidate.path).exists()) {
+                continue;
+            }
+            // 指纹覆盖了整个文件，或文件名和修改时间也相同（同一个U盘再次插入），直接认定为重复
+            if (FileFingerprint.coversWholeFile(source.size)
+                    || (candidate.name.equals(source.name)
+                    && candidate.lastModified / 1000 == source.lastModified / 1000)) {
+                return candidate;
+            }
+            // 抽样相同但无法确定时才完整计算哈希，U盘上的文件只读取一遍
+            if (task.contentHash == null) {
+                task.contentHash = FileFingerprint.full(sourceFile);
+            }
+            if (candidate.contentHash == null) {
+                candidate.contentHash = FileFingerprint.full(new File(candidate.path));
+                library.setContentHash(candidate.id, candidate.contentHash);
+            }
+            if (candidate.contentHash.equals(task.contentHash)) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    private File copy(ImportTask task) throws IOException {
+        WallpaperManager.WallpaperItem source = task.source;
+        File sourceFile = new File(source.path);
+        File partial = getPartialFile(source);
+        long position = 0;
+        if (partial.exists() && partial.length() <= source.size) {
+            position = Math.max(0, partial.length() - RESUME_ROLLBACK);
+            Log.d(TAG, "Resuming import of " + source.name + " at " + position);
+        }
+
+        if (libraryDir.getUsableSpace() < source.size - position) {
+            task.result = RESULT_NO_SPACE;
+            return null;
+        }
+
+        // 复制的同时计算源文件的完整哈希，校验时不必再读取一遍U盘
+        MessageDigest sourceDigest = FileFingerprint.newDigest();
+        long startTime = SystemClock.elapsedRealtime();
+        long startPosition = position;
+        long lastProgressTime = 0;
+        try (FileChannel in = new FileInputStream(sourceFile).getChannel();
+             RandomAccessFile outFile = new RandomAccessFile(partial, "rw");
+             FileChannel out = outFile.getChannel()) {
+            // 通道经直接缓冲区读写，数据不经过Java堆上的数组
+            ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            // 续传时已复制的部分也要计入哈希，只读取源文件，不重新写入
+            for (long offset = 0; offset < position; ) {
+                if (task.isCancelled()) {
+                    task.result = task.detached ? RESULT_DETACHED : RESULT_CANCELLED;
+                    return null;
+                }
+                offset += readChunk(in, offset, position, buffer, sourceDigest);
+            }
+            out.truncate(position);
+            out.position(position);
+            while (position < source.size) {
+                if (task.isCancelled()) {
+                    task.result = task.detached ? RESULT_DETACHED : RESULT_CANCELLED;
+                    return null;
+                }
+                int read = readChunk(in, position, source.size, buffer, sourceDigest);
+                buffer.rewind();
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                position += read;
+
+                long now = SystemClock.elapsedRealtime();
+                if (now - lastProgressTime >= PROGRESS_INTERVAL_MS || position == source.size) {
+                    lastProgressTime = now;
+                    postProgress(task, position, source.size, startPosition, now - startTime);
+                }
+            }
+            out.force(false);
+        }
+
+        String sourceHash = FileFingerprint.toHex(sourceDigest.digest());
+        if (!verify(partial, source.size, sourceHash)) {
+            partial.delete();
+            task.result = RESULT_VERIFY_FAILED;
+            return null;
+        }
+        // 完整哈希随记录保存，以后的重复检查不必再计算
+        task.contentHash = sourceHash;
+
+        File target = getTargetFile(source.name);
+        if (!partial.renameTo(target)) {
+            throw new IOException("Cannot move imported file to " + target);
+        }
+        // 保留源文件的修改时间，再次插入同一U盘时据此识别重复
+        target.setLastModified(source.lastModified);
+        task.result = RESULT_SUCCESS;
+        return target;
+    }
+
+    private File getPartialFile(WallpaperManager.WallpaperItem source) {
+        // 未完成的部分以源文件的路径、大小和修改时间命名，同一文件再次导入时从中断处继续
+        String key = source.path + "|" + source.size + "|" + source.lastModified;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] hash = digest.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+                builder.append(Character.forDigit(b & 0xf, 16));
+            }
+            key = builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            key = Integer.toHexString(key.hashCode()) + Long.toHexString(source.size)
+                    + Long.toHexString(source.lastModified);
+        }
+        return new File(partialDir, key + PARTIAL_SUFFIX);
+    }
+
+    private void deleteStalePartials() {
+        File[] partials = partialDir.listFiles((dir, name) -> name.endsWith(PARTIAL_SUFFIX));
+        if (partials == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File partial : partials) {
+            if (now - partial.lastModified() > PARTIAL_MAX_AGE_MS) {
+                partial.delete();
+            }
+        }
+    }
+
+    private void postProgress(ImportTask task, long copied, long total, long startPosition, long elapsedMs) {
+        // 速度按本次传输的数据计算，续传前已有的部分不计入
+        double bytesPerSecond = elapsedMs > 0 ? (copied - startPosition) * 1000.0 / elapsedMs : 0;
+        long etaMs = bytesPerSecond > 0 ? (long) ((total - copied) * 1000 / bytesPerSecond) : -1;
+        mainHandler.post(() -> {
+            ImportListener taskListener = task.listener;
+            if (taskListener != null) {
+                taskListener.onProgress(task, copied, total, bytesPerSecond, etaMs);
+            }
+        });
+    }
+
+    private static int readChunk(FileChannel in, long position, long end, ByteBuffer buffer, MessageDigest digest)
+            throws IOException {
+        // 从源文件读取一块并计入哈希，返回后缓冲区中是读到的数据
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int read = in.read(buffer, position);
+        if (read <= 0) {
+            throw new IOException("Source ended at " + position + " of " + end);
+        }
+        buffer.flip();
+        digest.update(buffer);
+        return read;
+    }
+
+    private boolean verify(File copy, long size, String sourceHash) throws IOException {
+        // 完整读取本地副本计算哈希，与复制时得到的源文件哈希比较；读取内部存储远快于U盘
+        if (copy.length() != size) {
+            return false;
+        }
+        return FileFingerprint.full(copy).equals(sourceHash);
+    }
+
+    private File getTargetFile(String name) {
+        // 与已有文件重名时添加序号
+        File target = new File(libraryDir, name);
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 1; target.exists(); i++) {
+            target = new File(libraryDir, base + "_" + i + extension);
+        }
+        return target;
+    }
+
+    private WallpaperManager.WallpaperItem createImportedItem(WallpaperManager.WallpaperItem source, File imported) {
+        return new WallpaperManager.WallpaperItem(imported.getAbsolutePath(), source.name, imported.length(),
+                imported.lastModified(), source.type, null);
+    }
+
+    public static class ImportTask {
+        private final WallpaperManager.WallpaperItem source;
+        private volatile ImportListener listener;
+        private volatile boolean cancelled;
+        private volatile boolean detached;
+        private volatile int result = RESULT_IO_ERROR;
+        private String contentHash;
+
+        ImportTask(WallpaperManager.WallpaperItem source, ImportListener listener) {
+            this.source = source;
+            this.listener = listener;
+        }
+
+        public WallpaperManager.WallpaperItem getSource() {
+            return source;
+        }
+
+        public void setListener(ImportListener listener) {
+            this.listener = listener;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.emotn.launcher.manager;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.graphics.BitmapFactory;
+import android.media.MediaMetadataRetriever;
+import android.util.Log;
+
+import com.emotn.launcher.service.WallpaperService;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class WallpaperLibrary {
+
+    private static final String TAG = "WallpaperLibrary";
+    private static final String DATABASE_NAME = "wallpaper_library.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static final String TABLE_WALLPAPERS = "wallpapers";
+    private static final String COLUMN_ID = "_id";
+    private static final String COLUMN_PATH = "path";
+    private static final String COLUMN_NAME = "name";
+    private static final String COLUMN_TYPE = "type";
+    private static final String COLUMN_SIZE = "size";
+    private static final String COLUMN_MTIME = "mtime";
+    private static final String COLUMN_WIDTH = "width";
+    private static final String COLUMN_HEIGHT = "height";
+    private static final String COLUMN_DURATION = "duration_ms";
+    private static final String COLUMN_THUMBNAIL_KEY = "thumbnail_key";
+    private static final String COLUMN_ADDED_TIME = "added_time";
+    private static final String COLUMN_FINGERPRINT = "fingerprint";
+    private static final String COLUMN_CONTENT_HASH = "content_hash";
+
+    private static final String[] RECORD_COLUMNS = {
+            COLUMN_ID, COLUMN_PATH, COLUMN_NAME, COLUMN_TYPE, COLUMN_SIZE, COLUMN_MTIME,
+            COLUMN_WIDTH, COLUMN_HEIGHT, COLUMN_DURATION, COLUMN_THUMBNAIL_KEY, COLUMN_ADDED_TIME,
+            COLUMN_FINGERPRINT, COLUMN_CONTENT_HASH
+    };
+
+    public static final int SORT_BY_DATE = 0;
+    public static final int SORT_BY_TYPE = 1;
+
+    private static WallpaperLibrary instance;
+
+    private final DatabaseHelper databaseHelper;
+
+    private static class DatabaseHelper extends SQLiteOpenHelper {
+
+        DatabaseHelper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE " + TABLE_WALLPAPERS + " ("
+                    + COLUMN_ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + COLUMN_PATH + " TEXT NOT NULL UNIQUE, "
+                    + COLUMN_NAME + " TEXT NOT NULL, "
+                    + COLUMN_TYPE + " INTEGER NOT NULL, "
+                    + COLUMN_SIZE + " INTEGER NOT NULL, "
+                    + COLUMN_MTIME + " INTEGER NOT NULL, "
+                    + COLUMN_WIDTH + " INTEGER NOT NULL DEFAULT 0, "
+                    + COLUMN_HEIGHT + " INTEGER NOT NULL DEFAULT 0, "
+                    + COLUMN_DURATION + " INTEGER NOT NULL DEFAULT 0, "
+                    + COLUMN_THUMBNAIL_KEY + " TEXT, "
+                    + COLUMN_ADDED_TIME + " INTEGER NOT NULL, "
+                    + COLUMN_FINGERPRINT + " TEXT, "
+                    + COLUMN_CONTENT_HASH + " TEXT)");
+            // 分页查询的两种排序都能直接按索引顺序读取，不需要临时排序
+            db.execSQL("CREATE INDEX idx_wallpapers_added ON " + TABLE_WALLPAPERS
+                    + " (" + COLUMN_ADDED_TIME + " DESC, " + COLUMN_ID + " DESC)");
+            db.execSQL("CREATE INDEX idx_wallpapers_type ON " + TABLE_WALLPAPERS
+                    + " (" + COLUMN_TYPE + ", " + COLUMN_ADDED_TIME + " DESC, " + COLUMN_ID + " DESC)");
+            createFingerprintIndex(db);
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+            if (oldVersion < 2) {
+                // 旧记录没有指纹，不参与重复检测
+                db.execSQL("ALTER TABLE " + TABLE_WALLPAPERS + " ADD COLUMN " + COLUMN_FINGERPRINT + " TEXT");
+                db.execSQL("ALTER TABLE " + TABLE_WALLPAPERS + " ADD COLUMN " + COLUMN_CONTENT_HASH + " TEXT");
+                createFingerprintIndex(db);
+            }
+        }
+
+        private void createFingerprintIndex(SQLiteDatabase db) {
+            db.execSQL("CREATE INDEX idx_wallpapers_fingerprint ON " + TABLE_WALLPAPERS
+                    + " (" + COLUMN_FINGERPRINT + ")");
+        }
+    }
+
+    public static class Record {
+        public long id;
+        public String path;
+        public String name;
+        public int type;
+        public long size;
+        public long lastModified;
+        public int width;
+        public int height;
+        public long durationMs;
+        public String thumbnailKey;
+        public long addedTime;
+        // 大小加抽样数据块的哈希，以及按需计算的完整哈希
+        public String fingerprint;
+        public String contentHash;
+
+        public WallpaperManager.WallpaperItem toWallpaperItem() {
+            return new WallpaperManager.WallpaperItem(path, name, size, lastModified, type, null);
+        }
+    }
+
+    public static synchronized WallpaperLibrary getInstance(Context context) {
+        if (instance == null) {
+            instance = new WallpaperLibrary(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WallpaperLibrary(Context context) {
+        this.databaseHelper = new DatabaseHelper(context);
+    }
+
+    public Record add(WallpaperManager.WallpaperItem item) {
+        return add(item, null, null);
+    }
+
+    public Record add(WallpaperManager.WallpaperItem item, String fingerprint, String contentHash) {
+        // 读取尺寸和时长较慢，需在后台线程调用
+        Record record = new Record();
+        record.path = item.path;
+        record.name = item.name;
+        record.type = item.type;
+        record.size = item.size;
+        record.lastModified = item.lastModified;
+        record.thumbnailKey = WallpaperManager.getThumbnailKey(item);
+        record.addedTime = System.currentTimeMillis();
+        record.fingerprint = fingerprint;
+        record.contentHash = contentHash;
+        readMetadata(record);
+
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_PATH, record.path);
+        values.put(COLUMN_NAME, record.name);
+        values.put(COLUMN_TYPE, record.type);
+        values.put(COLUMN_SIZE, record.size);
+        values.put(COLUMN_MTIME, record.lastModified);
+        values.put(COLUMN_WIDTH, record.width);
+        values.put(COLUMN_HEIGHT, record.height);
+        values.put(COLUMN_DURATION, record.durationMs);
+        values.put(COLUMN_THUMBNAIL_KEY, record.thumbnailKey);
+        values.put(COLUMN_ADDED_TIME, record.addedTime);
+        values.put(COLUMN_FINGERPRINT, record.fingerprint);
+        values.put(COLUMN_CONTENT_HASH, record.contentHash);
+        record.id = databaseHelper.getWritableDatabase().insertWithOnConflict(
+                TABLE_WALLPAPERS, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+        return record.id >= 0 ? record : null;
+    }
+
+    public void remove(String path) {
+        databaseHelper.getWritableDatabase().delete(TABLE_WALLPAPERS, COLUMN_PATH + " = ?", new String[]{path});
+    }
+
+    public Record findByPath(String path) {
+        try (Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_WALLPAPERS, RECORD_COLUMNS,
+                COLUMN_PATH + " = ?", new String[]{path}, null, null, null)) {
+            return cursor.moveToFirst() ? readRecord(cursor) : null;
+        }
+    }
+
+    public List<Record> findByFingerprint(String fingerprint) {
+        List<Record> records = new ArrayList<>();
+        try (Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_WALLPAPERS, RECORD_COLUMNS,
+                COLUMN_FINGERPRINT + " = ?", new String[]{fingerprint}, null, null, null)) {
+            while (cursor.moveToNext()) {
+                records.add(readRecord(cursor));
+            }
+        }
+        return records;
+    }
+
+    public void setContentHash(long id, String contentHash) {
+        ContentValues values = new ContentValues();
+        values.put(COLUMN_CONTENT_HASH, contentHash);
+        databaseHelper.getWritableDatabase().update(TABLE_WALLPAPERS, values,
+                COLUMN_ID + " = ?", new String[]{String.valueOf(id)});
+    }
+
+    public int getCount() {
+        try (Cursor cursor = databaseHelper.getReadableDatabase().rawQuery(
+                "SELECT COUNT(*) FROM " + TABLE_WALLPAPERS, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    public List<Record> query(int sortOrder, int offset, int limit) {
+        String orderBy = sortOrder == SORT_BY_TYPE
+                ? COLUMN_TYPE + ", " + COLUMN_ADDED_TIME + " DESC, " + COLUMN_ID + " DESC"
+                : COLUMN_ADDED_TIME + " DESC, " + COLUMN_ID + " DESC";
+        List<Record> records = new ArrayList<>();
+        try (Cursor cursor = databaseHelper.getReadableDatabase().query(TABLE_WALLPAPERS, RECORD_COLUMNS,
+                null, null, null, null, orderBy, offset + "," + limit)) {
+            while (cursor.moveToNext()) {
+                records.add(readRecord(cursor));
+            }
+        }
+        return records;
+    }
+
+    private Record readRecord(Cursor cursor) {
+        Record record = new Record();
+        record.id = cursor.getLong(0);
+        record.path = cursor.getString(1);
+        record.name = cursor.getString(2);
+        record.type = cursor.getInt(3);
+        record.size = cursor.getLong(4);
+        record.lastModified = cursor.getLong(5);
+        record.width = cursor.getInt(6);
+        record.height = cursor.getInt(7);
+        record.durationMs = cursor.getLong(8);
+        record.thumbnailKey = cursor.getString(9);
+        record.addedTime = cursor.getLong(10);
+        record.fingerprint = cursor.getString(11);
+        record.contentHash = cursor.getString(12);
+        return record;
+    }
+
+    private void readMetadata(Record record) {
+        if (record.type == WallpaperService.WALLPAPER_TYPE_VIDEO) {
+            MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+            try {
+                retriever.setDataSource(record.path);
+                record.width = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_WIDTH));
+                record.height = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_VIDEO_HEIGHT));
+                record.durationMs = parseInt(retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Error reading video metadata: " + e.getMessage());
+            } finally {
+                try {
+                    retriever.release();
+                } catch (Exception e) {
+                    // 忽略释放异常
+                }
+            }
+        } else {
+            // 图片只读取文件头中的尺寸
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inJustDecodeBounds = true;
+            BitmapFactory.decodeFile(record.path, options);
+            record.width = Math.max(0, options.outWidth);
+            record.height = Math.max(0, options.outHeight);
+        }
+    }
+
+    private static int parseInt(String value) {
+        try {
+            return value != null ? Integer.parseInt(value) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -3,21 +3,32 @@ package com.emotn.launcher.manager;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.MediaStore;
 import android.util.Log;
 
 import com.emotn.launcher.service.WallpaperService;
+import com.emotn.launcher.utils.BitmapDecoder;
+import com.emotn.launcher.utils.BitmapPool;
+import com.emotn.launcher.utils.FileTreeWalker;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class WallpaperManager {
 
@@ -35,17 +46,42 @@ public class WallpaperManager {
     public static final int WALLPAPER_MODE_STRETCH = 1;
     public static final int WALLPAPER_MODE_TILE = 2;
 
+    private static final int THUMBNAIL_THREADS = 2;
+    // 缩略图请求队列上限，快速滚动时丢弃最早的请求，被丢弃的请求以空结果回调
+    private static final int THUMBNAIL_QUEUE_SIZE = 32;
+    // 缩略图磁盘缓存容量
+    private static final long THUMBNAIL_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int THUMBNAIL_WIDTH = 320;
+    private static final int THUMBNAIL_HEIGHT = 180;
+
+    // 扫描和缩略图线程池在所有WallpaperManager实例间共享
+    private static final ExecutorService scanExecutor = Executors.newSingleThreadExecutor();
+    private static final ExecutorService thumbnailExecutor = new ThreadPoolExecutor(
+            THUMBNAIL_THREADS, THUMBNAIL_THREADS, 30, TimeUnit.SECONDS,
+            new LinkedBlockingDeque<>(THUMBNAIL_QUEUE_SIZE), WallpaperManager::discardOldestThumbnail);
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // 正在进行的扫描，U盘拔出时取消对应的扫描
+    private static final Set<ScanTask> activeScans = ConcurrentHashMap.newKeySet();
+
+    public interface ScanListener {
+        void onWallpaperFound(WallpaperItem item);
+
+        void onScanFinished(ScanTask task);
+    }
+
+    public interface ThumbnailCallback {
+        void onThumbnailLoaded(WallpaperItem item, Bitmap thumbnail);
+    }
+
     private Context context;
     private SharedPreferences preferences;
-    private File cacheDir;
+    private ThumbnailCache thumbnailCache;
 
     public WallpaperManager(Context context) {
         this.context = context;
         this.preferences = context.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
-        this.cacheDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_PICTURES), "wallpaper_cache");
-        if (!cacheDir.exists()) {
-            cacheDir.mkdirs();
-        }
+        File cacheDir = new File(context.getExternalFilesDir(Environment.DIRECTORY_PICTURES), "wallpaper_cache");
+        this.thumbnailCache = ThumbnailCache.getInstance(cacheDir, THUMBNAIL_CACHE_BYTES);
     }
 
     public void setCurrentWallpaper(String path, int type) {
@@ -104,40 +140,151 @@ public class WallpaperManager {
     }
 
     public List<WallpaperItem> scanWallpapers(String directory) {
+        // 同步扫描，不生成缩略图，需要时通过loadThumbnail按需加载
         List<WallpaperItem> wallpapers = new ArrayList<>();
+        scanDirectory(directory, new ScanTask(), new ScanListener() {
+            @Override
+            public void onWallpaperFound(WallpaperItem item) {
+                wallpapers.add(item);
+            }
+
+            @Override
+            public void onScanFinished(ScanTask task) {
+            }
+        });
+        return wallpapers;
+    }
+
+    public ScanTask scanWallpapersAsync(String directory, ScanListener listener) {
+        return scanWallpapersAsync(directory, null, listener);
+    }
+
+    public ScanTask scanWallpapersAsync(String directory, FileTreeWalker.DirectoryCache cache, ScanListener listener) {
+        // 后台扫描，每找到一个壁纸就在主线程回调一次，可随时取消
+        ScanTask task = new ScanTask();
+        task.cache = cache;
+        scanExecutor.execute(() -> scanDirectory(directory, task, new ScanListener() {
+            @Override
+            public void onWallpaperFound(WallpaperItem item) {
+                mainHandler.post(() -> {
+                    if (!task.isCancelled()) {
+                        listener.onWallpaperFound(item);
+                    }
+                });
+            }
+
+            @Override
+            public void onScanFinished(ScanTask task) {
+                mainHandler.post(() -> listener.onScanFinished(task));
+            }
+        }));
+        return task;
+    }
+
+    private void scanDirectory(String directory, ScanTask task, ScanListener listener) {
+        // 递归遍历子目录，跳过系统和隐藏目录
         File dir = new File(directory);
+        task.root = dir;
+        activeScans.add(task);
         if (dir.exists() && dir.isDirectory()) {
-            File[] files = dir.listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (isSupportedWallpaper(file)) {
-                        WallpaperItem item = createWallpaperItem(file);
-                        if (item != null) {
-                            wallpapers.add(item);
-                        }
+            task.walker.walk(dir, (file, size, lastModified) -> {
+                if (isSupportedWallpaper(file.getName())) {
+                    WallpaperItem item = createWallpaperItem(file, size, lastModified);
+                    if (item != null) {
+                        task.wallpapersFound.incrementAndGet();
+                        listener.onWallpaperFound(item);
                     }
                 }
+            }, task::isCancelled, task.cache);
+        }
+        activeScans.remove(task);
+        task.finished = true;
+        listener.onScanFinished(task);
+    }
+
+    public static void cancelDetachedScans() {
+        // 根目录已不存在的扫描立即停止
+        for (ScanTask task : activeScans) {
+            if (task.root != null && !task.root.exists()) {
+                task.cancel();
             }
         }
-        return wallpapers;
     }
 
-    private boolean isSupportedWallpaper(File file) {
-        String name = file.getName().toLowerCase();
+    public static void cancelScans(String volumePath) {
+        // 存储卷开始卸载时目录可能仍然存在，按卷路径直接停止该卷上的扫描
+        for (ScanTask task : activeScans) {
+            File root = task.root;
+            if (root != null && isOnVolume(root.getAbsolutePath(), volumePath)) {
+                task.cancel();
+            }
+        }
+    }
+
+    static boolean isOnVolume(String path, String volumePath) {
+        return path.equals(volumePath) || path.startsWith(volumePath + File.separator);
+    }
+
+    public void loadThumbnail(WallpaperItem item, ThumbnailCallback callback) {
+        // 缩略图在有界线程池中按需生成，结果在主线程回调
+        if (item.thumbnail != null) {
+            callback.onThumbnailLoaded(item, item.thumbnail);
+            return;
+        }
+        thumbnailExecutor.execute(new ThumbnailRequest(item, callback));
+    }
+
+    private static void discardOldestThumbnail(Runnable request, ThreadPoolExecutor executor) {
+        // 队列已满时丢弃最早的请求，同时通知其调用方，界面不会一直等待一个不会到来的结果
+        if (executor.isShutdown()) {
+            if (request instanceof ThumbnailRequest) {
+                ((ThumbnailRequest) request).discard();
+            }
+            return;
+        }
+        Runnable oldest = executor.getQueue().poll();
+        if (oldest instanceof ThumbnailRequest) {
+            ((ThumbnailRequest) oldest).discard();
+        }
+        executor.execute(request);
+    }
+
+    public boolean warmThumbnail(WallpaperItem item) {
+        // 在调用线程生成缩略图并写入磁盘缓存，解码出的Bitmap不保留在内存中
+        if (thumbnailCache.contains(getThumbnailKey(item))) {
+            return true;
+        }
+        Bitmap thumbnail = generateThumbnail(new File(item.path), item.type);
+        if (thumbnail == null) {
+            return false;
+        }
+        cacheThumbnail(item, thumbnail);
+        BitmapPool.getInstance().put(thumbnail);
+        return true;
+    }
+
+    public void releaseThumbnail(WallpaperItem item) {
+        // 缩略图离开屏幕后放回Bitmap池，供下一次解码复用
+        if (item.thumbnail != null) {
+            BitmapPool.getInstance().put(item.thumbnail);
+            item.thumbnail = null;
+        }
+    }
+
+    static boolean isSupportedWallpaper(String fileName) {
+        String name = fileName.toLowerCase();
         return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png") ||
                 name.endsWith(".bmp") || name.endsWith(".webp") || name.endsWith(".gif") ||
                 name.endsWith(".mp4") || name.endsWith(".webm") || name.endsWith(".avi");
     }
 
-    private WallpaperItem createWallpaperItem(File file) {
+    WallpaperItem createWallpaperItem(File file, long size, long lastModified) {
         try {
             String path = file.getAbsolutePath();
             String name = file.getName();
-            long size = file.length();
             int type = detectWallpaperType(file);
-            Bitmap thumbnail = generateThumbnail(file, type);
 
-            return new WallpaperItem(path, name, size, type, thumbnail);
+            return new WallpaperItem(path, name, size, lastModified, type, null);
         } catch (Exception e) {
             Log.e(TAG, "Error creating wallpaper item: " + e.getMessage());
             return null;
@@ -160,9 +307,7 @@ public class WallpaperManager {
             if (type == WallpaperService.WALLPAPER_TYPE_VIDEO) {
                 return ThumbnailUtils.createVideoThumbnail(file.getAbsolutePath(), MediaStore.Video.Thumbnails.MINI_KIND);
             } else {
-                BitmapFactory.Options options = new BitmapFactory.Options();
-                options.inSampleSize = 4;
-                return BitmapFactory.decodeStream(new FileInputStream(file), null, options);
+                return BitmapDecoder.decodeFile(file, THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
             }
         } catch (Exception e) {
             Log.e(TAG, "Error generating thumbnail: " + e.getMessage());
@@ -170,41 +315,104 @@ public class WallpaperManager {
         }
     }
 
-    public Bitmap getCachedThumbnail(String wallpaperPath) {
+    public Bitmap getCachedThumbnail(WallpaperItem item) {
         try {
-            String fileName = getThumbnailFileName(wallpaperPath);
-            File thumbnailFile = new File(cacheDir, fileName);
-            if (thumbnailFile.exists()) {
-                return BitmapFactory.decodeFile(thumbnailFile.getAbsolutePath());
-            }
+            return thumbnailCache.get(getThumbnailKey(item));
         } catch (Exception e) {
             Log.e(TAG, "Error getting cached thumbnail: " + e.getMessage());
         }
         return null;
     }
 
-    public void cacheThumbnail(String wallpaperPath, Bitmap thumbnail) {
+    public void cacheThumbnail(WallpaperItem item, Bitmap thumbnail) {
         try {
-            String fileName = getThumbnailFileName(wallpaperPath);
-            File thumbnailFile = new File(cacheDir, fileName);
-            FileOutputStream fos = new FileOutputStream(thumbnailFile);
-            thumbnail.compress(Bitmap.CompressFormat.PNG, 80, fos);
-            fos.close();
+            thumbnailCache.put(getThumbnailKey(item), thumbnail);
         } catch (Exception e) {
             Log.e(TAG, "Error caching thumbnail: " + e.getMessage());
         }
     }
 
-    private String getThumbnailFileName(String wallpaperPath) {
-        return "thumb_" + wallpaperPath.hashCode() + ".png";
+    public static String getThumbnailKey(WallpaperItem item) {
+        // 文件在同一路径被替换时大小或修改时间会变化，不会命中旧缩略图
+        return ThumbnailCache.getKey(item.path, item.size, item.lastModified);
     }
 
     public void clearCache() {
-        File[] files = cacheDir.listFiles();
-        if (files != null) {
-            for (File file : files) {
-                file.delete();
+        thumbnailCache.clear();
+    }
+
+    public static class ScanTask {
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private final AtomicInteger wallpapersFound = new AtomicInteger();
+        private final FileTreeWalker walker = new FileTreeWalker();
+        private volatile File root;
+        private volatile boolean finished;
+        private FileTreeWalker.DirectoryCache cache;
+
+        public void cancel() {
+            cancelled.set(true);
+        }
+
+        public boolean isCancelled() {
+            return cancelled.get();
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public void setMaxDepth(int maxDepth) {
+            walker.setMaxDepth(maxDepth);
+        }
+
+        public int getFilesVisited() {
+            return walker.getFilesVisited();
+        }
+
+        public int getDirectoriesReused() {
+            return walker.getDirectoriesReused();
+        }
+
+        public long getBytesExamined() {
+            return walker.getBytesExamined();
+        }
+
+        public boolean isVolumeDetached() {
+            return walker.isRootDetached();
+        }
+
+        public int getWallpapersFound() {
+            return wallpapersFound.get();
+        }
+    }
+
+    private class ThumbnailRequest implements Runnable {
+        private final WallpaperItem item;
+        private final ThumbnailCallback callback;
+
+        ThumbnailRequest(WallpaperItem item, ThumbnailCallback callback) {
+            this.item = item;
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            Bitmap thumbnail = getCachedThumbnail(item);
+            if (thumbnail == null) {
+                thumbnail = generateThumbnail(new File(item.path), item.type);
+                if (thumbnail != null) {
+                    cacheThumbnail(item, thumbnail);
+                }
             }
+            Bitmap result = thumbnail;
+            mainHandler.post(() -> {
+                item.thumbnail = result;
+                callback.onThumbnailLoaded(item, result);
+            });
+        }
+
+        void discard() {
+            mainHandler.post(() -> callback.onThumbnailLoaded(item, null));
         }
     }
 
@@ -212,13 +420,15 @@ public class WallpaperManager {
         public String path;
         public String name;
         public long size;
+        public long lastModified;
         public int type;
         public Bitmap thumbnail;
 
-        public WallpaperItem(String path, String name, long size, int type, Bitmap thumbnail) {
+        public WallpaperItem(String path, String name, long size, long lastModified, int type, Bitmap thumbnail) {
             this.path = path;
             this.name = name;
             this.size = size;
+            this.lastModified = lastModified;
             this.type = type;
             this.thumbnail = thumbnail;
         }
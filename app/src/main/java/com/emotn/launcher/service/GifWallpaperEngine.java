@@ -0,0 +1,385 @@
+package com.emotn.launcher.service;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.ImageDecoder;
+import android.graphics.Movie;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.drawable.AnimatedImageDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.emotn.launcher.utils.BitmapDecoder;
+import com.emotn.launcher.utils.BitmapPool;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class GifWallpaperEngine {
+
+    private static final String TAG = "GifWallpaperEngine";
+    // 轮转使用的帧缓冲数量：显示中、等待显示、正在解码
+    private static final int RING_SIZE = 3;
+    private static final int MAX_FPS = 30;
+    private static final int LOW_RAM_MAX_FPS = 15;
+    // 与浏览器一致，不大于10ms的帧延迟按100ms处理
+    private static final int MIN_VALID_DELAY_MS = 10;
+    private static final int DEFAULT_DELAY_MS = 100;
+
+    public interface Callback {
+        void onReady(Drawable drawable);
+    }
+
+    private final String path;
+    private final int targetWidth;
+    private final int targetHeight;
+    private final long minFrameInterval;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final HandlerThread decodeThread;
+    private final Handler decodeHandler;
+    // 帧切换消息的token，停止时只移除这些消息
+    private final Object frameToken = new Object();
+
+    private Drawable drawable;
+    private FrameDrawable frameDrawable;
+    private volatile boolean running;
+    private boolean released;
+
+    public GifWallpaperEngine(Context context, String path, int targetWidth, int targetHeight) {
+        this.path = path;
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        boolean lowRam = activityManager != null && activityManager.isLowRamDevice();
+        this.minFrameInterval = 1000 / (lowRam ? LOW_RAM_MAX_FPS : MAX_FPS);
+        this.decodeThread = new HandlerThread(TAG);
+        decodeThread.start();
+        this.decodeHandler = new Handler(decodeThread.getLooper());
+    }
+
+    public void prepare(Callback callback) {
+        decodeHandler.post(() -> {
+            Drawable result;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+                result = decodeAnimatedImage();
+            } else {
+                result = decodeMovie();
+            }
+            mainHandler.post(() -> {
+                if (released || result == null) {
+                    return;
+                }
+                drawable = result;
+                callback.onReady(result);
+                if (running) {
+                    running = false;
+                    start();
+                }
+            });
+        });
+    }
+
+    private Drawable decodeAnimatedImage() {
+        // API 28起由系统解码器逐帧解码，内部只保留当前帧
+        try {
+            ImageDecoder.Source source = ImageDecoder.createSource(new File(path));
+            Drawable result = ImageDecoder.decodeDrawable(source, (decoder, info, src) ->
+                    decoder.setTargetSampleSize(BitmapDecoder.calculateSampleSize(
+                            info.getSize().getWidth(), info.getSize().getHeight(), targetWidth, targetHeight)));
+            if (result instanceof AnimatedImageDrawable) {
+                ((AnimatedImageDrawable) result).setRepeatCount(AnimatedImageDrawable.REPEAT_INFINITE);
+            }
+            return result;
+        } catch (IOException e) {
+            Log.e(TAG, "Error decoding animated image: " + e.getMessage());
+            return null;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private Drawable decodeMovie() {
+        Movie movie = Movie.decodeFile(path);
+        if (movie == null || movie.width() <= 0 || movie.height() <= 0) {
+            Log.e(TAG, "Error decoding gif: " + path);
+            return null;
+        }
+        int[] delays = readFrameDelays(new File(path));
+        if (delays.length == 0) {
+            delays = new int[]{Math.max(movie.duration(), DEFAULT_DELAY_MS)};
+        }
+        frameDrawable = new FrameDrawable(movie, delays, targetWidth, targetHeight);
+        return frameDrawable;
+    }
+
+    public void start() {
+        if (running || released) {
+            return;
+        }
+        running = true;
+        if (drawable instanceof AnimatedImageDrawable) {
+            ((AnimatedImageDrawable) drawable).start();
+        } else if (drawable instanceof FrameDrawable) {
+            frameDrawable.nextShowTime = SystemClock.uptimeMillis();
+            decodeHandler.post(renderNextFrame);
+        }
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (drawable instanceof AnimatedImageDrawable) {
+            ((AnimatedImageDrawable) drawable).stop();
+        }
+        decodeHandler.removeCallbacks(renderNextFrame);
+        mainHandler.removeCallbacksAndMessages(frameToken);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public void release() {
+        stop();
+        released = true;
+        // 帧缓冲在解码线程退出后再回收
+        decodeHandler.post(() -> {
+            if (frameDrawable != null) {
+                frameDrawable.releaseFrames();
+            }
+            decodeThread.quit();
+        });
+    }
+
+    private final Runnable renderNextFrame = new Runnable() {
+        @Override
+        public void run() {
+            FrameDrawable frames = frameDrawable;
+            if (!running || frames == null) {
+                return;
+            }
+            // 解码到空闲的缓冲中，到显示时间后在主线程切换
+            int slot = frames.renderFrame();
+            long showTime = frames.nextShowTime;
+            mainHandler.postAtTime(() -> frames.showSlot(slot), frameToken, showTime);
+
+            // 下一帧在本帧显示时就开始解码，比它自己的显示时间提前一帧完成
+            long delay = Math.max(frames.getCurrentDelay(), minFrameInterval);
+            frames.nextShowTime = Math.max(showTime + delay, SystemClock.uptimeMillis());
+            decodeHandler.postAtTime(this, showTime);
+        }
+    };
+
+    static int[] readFrameDelays(File file) {
+        // 只解析GIF的块结构读取每帧延迟，跳过图像数据，不做LZW解压；返回文件中的原始延迟，与Movie的时间轴一致
+        List<Integer> delays = new ArrayList<>();
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file))) {
+            skipFully(is, 10);
+            int packed = is.read();
+            skipFully(is, 2);
+            if ((packed & 0x80) != 0) {
+                skipFully(is, 3L << ((packed & 0x07) + 1));
+            }
+
+            int pendingDelay = 0;
+            int block;
+            while ((block = is.read()) != -1 && block != 0x3B) {
+                if (block == 0x21) {
+                    int label = is.read();
+                    if (label == 0xF9) {
+                        skipFully(is, 2);
+                        pendingDelay = (is.read() | (is.read() << 8)) * 10;
+                        skipFully(is, 1);
+                    }
+                    skipSubBlocks(is);
+                } else if (block == 0x2C) {
+                    skipFully(is, 8);
+                    int imagePacked = is.read();
+                    if ((imagePacked & 0x80) != 0) {
+                        skipFully(is, 3L << ((imagePacked & 0x07) + 1));
+                    }
+                    skipFully(is, 1);
+                    skipSubBlocks(is);
+                    delays.add(pendingDelay);
+                    pendingDelay = 0;
+                } else {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading gif frame delays: " + e.getMessage());
+        }
+
+        int[] result = new int[delays.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = delays.get(i);
+        }
+        return result;
+    }
+
+    private static void skipSubBlocks(InputStream is) throws IOException {
+        int size;
+        while ((size = is.read()) > 0) {
+            skipFully(is, size);
+        }
+        if (size < 0) {
+            throw new IOException("Unexpected end of gif");
+        }
+    }
+
+    private static void skipFully(InputStream is, long count) throws IOException {
+        while (count > 0) {
+            long skipped = is.skip(count);
+            if (skipped <= 0) {
+                if (is.read() < 0) {
+                    throw new IOException("Unexpected end of gif");
+                }
+                skipped = 1;
+            }
+            count -= skipped;
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static class FrameDrawable extends Drawable {
+        private final Movie movie;
+        // 可显示的帧：在Movie时间轴上的起始时间和实际显示时长
+        private final int[] frameTimes;
+        private final int[] delays;
+        private final Bitmap[] ring = new Bitmap[RING_SIZE];
+        private final float scale;
+        private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        private int nextFrame;
+        private int nextSlot;
+        private int currentDelay;
+        private volatile int shownSlot = -1;
+        long nextShowTime;
+
+        FrameDrawable(Movie movie, int[] rawDelays, int targetWidth, int targetHeight) {
+            this.movie = movie;
+            // Movie按原始延迟排列时间轴，延迟为0的帧与下一帧合成显示，无法单独定位，因此跳过
+            int count = 0;
+            for (int delay : rawDelays) {
+                if (delay > 0) {
+                    count++;
+                }
+            }
+            this.frameTimes = new int[Math.max(count, 1)];
+            this.delays = new int[frameTimes.length];
+            delays[0] = DEFAULT_DELAY_MS;
+            int frame = 0;
+            int startTime = 0;
+            for (int delay : rawDelays) {
+                if (delay > 0) {
+                    frameTimes[frame] = startTime;
+                    delays[frame] = getDisplayDelay(delay);
+                    frame++;
+                }
+                startTime += delay;
+            }
+            // 帧缓冲不超过屏幕尺寸
+            this.scale = Math.min(1f, Math.min((float) targetWidth / movie.width(),
+                    (float) targetHeight / movie.height()));
+            int width = Math.max(1, Math.round(movie.width() * scale));
+            int height = Math.max(1, Math.round(movie.height() * scale));
+            for (int i = 0; i < RING_SIZE; i++) {
+                Bitmap bitmap = BitmapPool.getInstance().get(width, height, Bitmap.Config.ARGB_8888);
+                if (bitmap != null) {
+                    bitmap.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+                } else {
+                    bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+                }
+                ring[i] = bitmap;
+            }
+        }
+
+        int renderFrame() {
+            int slot = nextSlot;
+            Bitmap target = ring[slot];
+            target.eraseColor(0);
+            Canvas canvas = new Canvas(target);
+            canvas.scale(scale, scale);
+            movie.setTime(frameTimes[nextFrame]);
+            movie.draw(canvas, 0, 0);
+
+            currentDelay = delays[nextFrame];
+            nextFrame = (nextFrame + 1) % delays.length;
+            nextSlot = (nextSlot + 1) % RING_SIZE;
+            return slot;
+        }
+
+        private static int getDisplayDelay(int delay) {
+            // 只影响显示时长，取帧仍按原始时间轴
+            return delay <= MIN_VALID_DELAY_MS ? DEFAULT_DELAY_MS : delay;
+        }
+
+        int getCurrentDelay() {
+            return currentDelay;
+        }
+
+        void showSlot(int slot) {
+            shownSlot = slot;
+            invalidateSelf();
+        }
+
+        void releaseFrames() {
+            shownSlot = -1;
+            for (int i = 0; i < RING_SIZE; i++) {
+                BitmapPool.getInstance().put(ring[i]);
+                ring[i] = null;
+            }
+        }
+
+        @Override
+        public void draw(Canvas canvas) {
+            int slot = shownSlot;
+            if (slot < 0 || ring[slot] == null) {
+                return;
+            }
+            canvas.drawBitmap(ring[slot], null, getBounds(), paint);
+        }
+
+        @Override
+        public int getIntrinsicWidth() {
+            return movie.width();
+        }
+
+        @Override
+        public int getIntrinsicHeight() {
+            return movie.height();
+        }
+
+        @Override
+        public void setAlpha(int alpha) {
+            paint.setAlpha(alpha);
+            invalidateSelf();
+        }
+
+        @Override
+        public void setColorFilter(ColorFilter colorFilter) {
+            paint.setColorFilter(colorFilter);
+            invalidateSelf();
+        }
+
+        @Override
+        public int getOpacity() {
+            return PixelFormat.TRANSLUCENT;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.emotn.launcher.service;
+
+import android.graphics.SurfaceTexture;
+import android.media.MediaPlayer;
+import android.os.Build;
+import android.util.Log;
+import android.view.Surface;
+import android.view.TextureView;
+
+public class VideoWallpaperPlayer implements TextureView.SurfaceTextureListener,
+        MediaPlayer.OnPreparedListener, MediaPlayer.OnCompletionListener {
+
+    private static final String TAG = "VideoWallpaperPlayer";
+
+    public interface Listener {
+        void onFirstFrame(VideoWallpaperPlayer player);
+    }
+
+    private final String path;
+    private final Listener listener;
+    private MediaPlayer mediaPlayer;
+
+    // 视频播放器与Surface解耦，Surface重建时只切换输出目标
+    private boolean prepared;
+    private boolean completed;
+    private boolean looping;
+    private boolean paused;
+    private boolean firstFrameRendered;
+    private SurfaceTexture surfaceTexture;
+    private Surface surface;
+    private int savedPosition;
+    // 只有Surface被销毁重建后才需要恢复位置，普通的暂停和继续不做seek
+    private boolean restorePosition;
+
+    public VideoWallpaperPlayer(String path, boolean muted, boolean looping, Listener listener) {
+        this.path = path;
+        this.looping = looping;
+        this.listener = listener;
+        // 播放器在Surface创建前就开始准备，Surface就绪后直接开始播放
+        mediaPlayer = new MediaPlayer();
+        try {
+            mediaPlayer.setDataSource(path);
+            mediaPlayer.setVolume(muted ? 0f : 1f);
+            // 由播放器内部循环，循环时不需要重新准备
+            mediaPlayer.setLooping(looping);
+            mediaPlayer.setOnPreparedListener(this);
+            mediaPlayer.setOnCompletionListener(this);
+            mediaPlayer.prepareAsync();
+        } catch (Exception e) {
+            Log.e(TAG, "Error preparing media player: " + e.getMessage());
+            release();
+        }
+    }
+
+    public void attach(TextureView textureView) {
+        textureView.setSurfaceTextureListener(this);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setMuted(boolean muted) {
+        if (mediaPlayer != null) {
+            mediaPlayer.setVolume(muted ? 0f : 1f);
+        }
+    }
+
+    public void setLooping(boolean looping) {
+        this.looping = looping;
+        if (mediaPlayer != null) {
+            mediaPlayer.setLooping(looping);
+            if (looping && completed) {
+                completed = false;
+                resume();
+            }
+        }
+    }
+
+    public void pause() {
+        paused = true;
+        savePosition();
+    }
+
+    public void resume() {
+        paused = false;
+        startIfReady();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void release() {
+        if (mediaPlayer != null) {
+            mediaPlayer.release();
+            mediaPlayer = null;
+        }
+        prepared = false;
+        savedPosition = 0;
+        restorePosition = false;
+    }
+
+    private void startIfReady() {
+        if (mediaPlayer == null || !prepared || surface == null || completed || paused) {
+            return;
+        }
+        try {
+            // 部分设备切换Surface后会丢失播放位置，从保存的位置继续播放
+            if (restorePosition && savedPosition > 0 && mediaPlayer.getCurrentPosition() != savedPosition) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+                    mediaPlayer.seekTo(savedPosition, MediaPlayer.SEEK_CLOSEST);
+                } else {
+                    mediaPlayer.seekTo(savedPosition);
+                }
+            }
+            restorePosition = false;
+            mediaPlayer.start();
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error resuming video: " + e.getMessage());
+        }
+    }
+
+    private void savePosition() {
+        if (mediaPlayer == null || !prepared) {
+            return;
+        }
+        try {
+            savedPosition = mediaPlayer.getCurrentPosition();
+            if (mediaPlayer.isPlaying()) {
+                mediaPlayer.pause();
+            }
+        } catch (IllegalStateException e) {
+            Log.e(TAG, "Error pausing video: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureAvailable(SurfaceTexture surfaceTexture, int width, int height) {
+        this.surfaceTexture = surfaceTexture;
+        this.surface = new Surface(surfaceTexture);
+        if (mediaPlayer != null) {
+            mediaPlayer.setSurface(surface);
+            startIfReady();
+        }
+    }
+
+    @Override
+    public void onSurfaceTextureSizeChanged(SurfaceTexture surfaceTexture, int width, int height) {
+        // 处理表面变化
+    }
+
+    @Override
+    public boolean onSurfaceTextureDestroyed(SurfaceTexture surfaceTexture) {
+        // 只暂停并记录位置，不释放播放器，Surface重建后不需要重新解析和准备解码器
+        if (this.surfaceTexture != surfaceTexture) {
+            return true;
+        }
+        if (mediaPlayer != null) {
+            savePosition();
+            mediaPlayer.setSurface(null);
+            restorePosition = true;
+        }
+        surface.release();
+        surface = null;
+        this.surfaceTexture = null;
+        return true;
+    }
+
+    @Override
+    public void onSurfaceTextureUpdated(SurfaceTexture surfaceTexture) {
+        // 第一帧画面输出后通知，用于切换壁纸时的淡入
+        if (!firstFrameRendered) {
+            firstFrameRendered = true;
+            listener.onFirstFrame(this);
+        }
+    }
+
+    @Override
+    public void onPrepared(MediaPlayer mp) {
+        prepared = true;
+        startIfReady();
+    }
+
+    @Override
+    public void onCompletion(MediaPlayer mp) {
+        if (!looping) {
+            // 单次播放模式，播放完成后停在最后一帧
+            completed = true;
+        }
+    }
+}
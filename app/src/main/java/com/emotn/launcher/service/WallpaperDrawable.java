@@ -0,0 +1,97 @@
+package com.emotn.launcher.service;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.ColorFilter;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.graphics.drawable.Drawable;
+
+import com.emotn.launcher.manager.WallpaperManager;
+
+public class WallpaperDrawable extends Drawable {
+
+    private final Bitmap bitmap;
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.DITHER_FLAG);
+    private final Matrix matrix = new Matrix();
+    private final BitmapShader tileShader;
+    private int mode;
+
+    public WallpaperDrawable(Bitmap bitmap, int mode) {
+        this.bitmap = bitmap;
+        this.tileShader = new BitmapShader(bitmap, Shader.TileMode.REPEAT, Shader.TileMode.REPEAT);
+        this.mode = mode;
+    }
+
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    public void setMode(int mode) {
+        if (this.mode != mode) {
+            this.mode = mode;
+            updateMatrix(getBounds());
+            invalidateSelf();
+        }
+    }
+
+    @Override
+    protected void onBoundsChange(Rect bounds) {
+        updateMatrix(bounds);
+    }
+
+    private void updateMatrix(Rect bounds) {
+        // 缩放只修改绘制矩阵，由渲染管线完成，不生成缩放后的Bitmap副本
+        RectF source = new RectF(0, 0, bitmap.getWidth(), bitmap.getHeight());
+        RectF target = new RectF(bounds);
+        matrix.reset();
+        if (mode == WallpaperManager.WALLPAPER_MODE_STRETCH) {
+            matrix.setRectToRect(source, target, Matrix.ScaleToFit.FILL);
+        } else if (mode == WallpaperManager.WALLPAPER_MODE_CENTER) {
+            // 居中并等比铺满屏幕，超出部分裁掉
+            float scale = Math.max(target.width() / source.width(), target.height() / source.height());
+            matrix.setScale(scale, scale);
+            matrix.postTranslate(target.centerX() - source.width() * scale / 2f,
+                    target.centerY() - source.height() * scale / 2f);
+        } else {
+            matrix.setTranslate(bounds.left, bounds.top);
+        }
+        paint.setShader(mode == WallpaperManager.WALLPAPER_MODE_TILE ? tileShader : null);
+        tileShader.setLocalMatrix(matrix);
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (bitmap.isRecycled()) {
+            return;
+        }
+        if (mode == WallpaperManager.WALLPAPER_MODE_TILE) {
+            // 平铺用重复模式的着色器一次绘制整个区域
+            canvas.drawRect(getBounds(), paint);
+        } else {
+            canvas.drawBitmap(bitmap, matrix, paint);
+        }
+    }
+
+    @Override
+    public void setAlpha(int alpha) {
+        paint.setAlpha(alpha);
+        invalidateSelf();
+    }
+
+    @Override
+    public void setColorFilter(ColorFilter colorFilter) {
+        paint.setColorFilter(colorFilter);
+        invalidateSelf();
+    }
+
+    @Override
+    public int getOpacity() {
+        return bitmap.hasAlpha() || paint.getAlpha() < 255 ? PixelFormat.TRANSLUCENT : PixelFormat.OPAQUE;
+    }
+}
@@ -0,0 +1,180 @@
+package com.emotn.launcher.service;
+
+import android.app.Activity;
+import android.app.ActivityManager;
+import android.app.Application;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Bundle;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+public class WallpaperPlaybackScheduler {
+
+    private static final String TAG = "WallpaperScheduler";
+
+    public static final int STATE_PLAYING = 0;
+    public static final int STATE_BACKGROUND = 1;
+    public static final int STATE_SCREEN_OFF = 2;
+    public static final int STATE_HIDDEN = 3;
+    private static final int STATE_COUNT = 4;
+    private static final String[] STATE_NAMES = {"playing", "background", "screen_off", "hidden"};
+
+    public interface Listener {
+        void onPlaybackChanged(boolean playing);
+    }
+
+    private static WallpaperPlaybackScheduler instance;
+
+    private final Context context;
+    private Listener listener;
+
+    private int startedActivities;
+    private boolean launcherForeground;
+    private boolean screenOn;
+    private boolean windowVisible = true;
+
+    private int state = -1;
+    private long stateSince;
+    // 每种状态累计的时间，用于评估暂停策略的效果
+    private final long[] timeInState = new long[STATE_COUNT];
+
+    private final BroadcastReceiver screenReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            screenOn = Intent.ACTION_SCREEN_ON.equals(intent.getAction());
+            updateState();
+        }
+    };
+
+    private final Application.ActivityLifecycleCallbacks activityCallbacks = new Application.ActivityLifecycleCallbacks() {
+        @Override
+        public void onActivityStarted(Activity activity) {
+            startedActivities++;
+            launcherForeground = true;
+            updateState();
+        }
+
+        @Override
+        public void onActivityStopped(Activity activity) {
+            startedActivities = Math.max(0, startedActivities - 1);
+            launcherForeground = startedActivities > 0;
+            updateState();
+        }
+
+        @Override
+        public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+        }
+
+        @Override
+        public void onActivityResumed(Activity activity) {
+        }
+
+        @Override
+        public void onActivityPaused(Activity activity) {
+        }
+
+        @Override
+        public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+        }
+
+        @Override
+        public void onActivityDestroyed(Activity activity) {
+        }
+    };
+
+    public static synchronized WallpaperPlaybackScheduler getInstance(Context context) {
+        if (instance == null) {
+            instance = new WallpaperPlaybackScheduler(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private WallpaperPlaybackScheduler(Context context) {
+        this.context = context;
+
+        // 服务可能晚于界面启动，初始状态从系统查询
+        ActivityManager.RunningAppProcessInfo processInfo = new ActivityManager.RunningAppProcessInfo();
+        ActivityManager.getMyMemoryState(processInfo);
+        launcherForeground = processInfo.importance <= ActivityManager.RunningAppProcessInfo.IMPORTANCE_FOREGROUND;
+        startedActivities = launcherForeground ? 1 : 0;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        screenOn = powerManager == null || powerManager.isInteractive();
+
+        ((Application) context).registerActivityLifecycleCallbacks(activityCallbacks);
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        context.registerReceiver(screenReceiver, filter);
+        updateState();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+        if (listener != null) {
+            listener.onPlaybackChanged(state == STATE_PLAYING);
+        }
+    }
+
+    public void setWindowVisible(boolean visible) {
+        windowVisible = visible;
+        updateState();
+    }
+
+    public boolean isPlaying() {
+        return state == STATE_PLAYING;
+    }
+
+    public long getTimeInState(int targetState) {
+        long time = timeInState[targetState];
+        if (targetState == state) {
+            time += SystemClock.elapsedRealtime() - stateSince;
+        }
+        return time;
+    }
+
+    private void updateState() {
+        // 息屏优先级最高，其次是界面退到后台，最后是窗口被隐藏
+        int newState;
+        if (!screenOn) {
+            newState = STATE_SCREEN_OFF;
+        } else if (!launcherForeground) {
+            newState = STATE_BACKGROUND;
+        } else if (!windowVisible) {
+            newState = STATE_HIDDEN;
+        } else {
+            newState = STATE_PLAYING;
+        }
+        if (newState == state) {
+            return;
+        }
+
+        long now = SystemClock.elapsedRealtime();
+        int oldState = state;
+        if (oldState >= 0) {
+            timeInState[oldState] += now - stateSince;
+        }
+        state = newState;
+        stateSince = now;
+        logStateChange(oldState);
+
+        if (listener != null && (oldState == STATE_PLAYING) != (newState == STATE_PLAYING)) {
+            listener.onPlaybackChanged(newState == STATE_PLAYING);
+        }
+    }
+
+    private void logStateChange(int oldState) {
+        StringBuilder builder = new StringBuilder("Wallpaper playback ")
+                .append(oldState >= 0 ? STATE_NAMES[oldState] : "none")
+                .append(" -> ")
+                .append(STATE_NAMES[state])
+                .append(", time in states:");
+        for (int i = 0; i < STATE_COUNT; i++) {
+            builder.append(' ').append(STATE_NAMES[i]).append('=').append(timeInState[i] / 1000).append('s');
+        }
+        Log.i(TAG, builder.toString());
+    }
+}
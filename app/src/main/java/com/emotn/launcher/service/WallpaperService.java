@@ -2,37 +2,62 @@ package com.emotn.launcher.service;
 
 import android.app.Service;
 import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.ColorFilter;
+import android.graphics.ColorMatrix;
+import android.graphics.ColorMatrixColorFilter;
+import android.graphics.Paint;
 import android.graphics.PixelFormat;
-import android.media.MediaPlayer;
-import android.net.Uri;
 import android.os.Binder;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
+import android.util.DisplayMetrics;
 import android.util.Log;
 import android.view.Gravity;
-import android.view.SurfaceHolder;
-import android.view.SurfaceView;
+import android.view.TextureView;
 import android.view.View;
 import android.view.WindowManager;
+import android.widget.FrameLayout;
 import android.widget.ImageView;
 
 import com.emotn.launcher.R;
+import com.emotn.launcher.manager.WallpaperManager;
+import com.emotn.launcher.utils.BitmapDecoder;
+import com.emotn.launcher.utils.BitmapPool;
 
 import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-public class WallpaperService extends Service implements SurfaceHolder.Callback, MediaPlayer.OnPreparedListener, MediaPlayer.OnCompletionListener {
+public class WallpaperService extends Service {
 
     private static final String TAG = "WallpaperService";
+    private static final long CROSS_FADE_DURATION_MS = 300;
+
+    // 静态壁纸在后台线程解码，不阻塞主线程
+    private static final ExecutorService decodeExecutor = Executors.newSingleThreadExecutor();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
 
     private WindowManager windowManager;
     private WindowManager.LayoutParams wallpaperParams;
-    private View wallpaperView;
-    private MediaPlayer mediaPlayer;
+    // 壁纸窗口只添加一次，切换壁纸时只替换窗口中的图层
+    private FrameLayout wallpaperRoot;
+    private WallpaperLayer currentLayer;
+    private WallpaperLayer pendingLayer;
+    // 根据可见性暂停和恢复视频、GIF的解码
+    private WallpaperPlaybackScheduler playbackScheduler;
 
     private String currentWallpaperPath;
     private int wallpaperType = WALLPAPER_TYPE_STATIC;
     private int transparency = 100;
+    private int brightness = 100;
+    // 亮度和透明度合成为一个颜色滤镜，在绘制或合成时由GPU一次完成
+    private final ColorMatrix colorMatrix = new ColorMatrix();
+    private ColorFilter wallpaperFilter;
     private boolean isMuted = true;
     private boolean isLooping = true;
+    private int wallpaperMode = WallpaperManager.WALLPAPER_MODE_CENTER;
 
     public static final int WALLPAPER_TYPE_STATIC = 0;
     public static final int WALLPAPER_TYPE_VIDEO = 1;
@@ -46,10 +71,61 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
         }
     }
 
+    // 一个壁纸图层及其占用的解码资源，淡出后一起释放
+    private static class WallpaperLayer {
+        final String path;
+        final int type;
+        final View view;
+        final Paint layerPaint = new Paint();
+        VideoWallpaperPlayer videoPlayer;
+        GifWallpaperEngine gifEngine;
+        // 已按屏幕尺寸解码的静态壁纸，切换显示模式时直接复用
+        Bitmap bitmap;
+        boolean released;
+
+        WallpaperLayer(String path, int type, View view) {
+            this.path = path;
+            this.type = type;
+            this.view = view;
+        }
+
+        void release() {
+            // 调用方已将视图移出窗口；先解除视图对位图的引用，再把位图放回池中供其他解码复用
+            released = true;
+            view.setBackground(null);
+            if (view instanceof ImageView) {
+                ((ImageView) view).setImageDrawable(null);
+            }
+            if (videoPlayer != null) {
+                videoPlayer.release();
+            }
+            if (gifEngine != null) {
+                gifEngine.release();
+            }
+            if (bitmap != null) {
+                BitmapPool.getInstance().put(bitmap);
+                bitmap = null;
+            }
+        }
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
+        WallpaperManager wallpaperManager = new WallpaperManager(this);
+        wallpaperMode = wallpaperManager.getWallpaperMode();
+        transparency = wallpaperManager.getTransparency();
+        brightness = wallpaperManager.getBrightness();
+        updateColorFilter();
         initWallpaperWindow();
+        playbackScheduler = WallpaperPlaybackScheduler.getInstance(this);
+        playbackScheduler.setListener(this::onPlaybackChanged);
+
+        // 恢复上次从壁纸库中选择的壁纸
+        String savedPath = wallpaperManager.getCurrentWallpaper();
+        if (savedPath != null && new File(savedPath).exists()) {
+            setWallpaper(savedPath);
+        }
     }
 
     private void initWallpaperWindow() {
@@ -63,7 +139,8 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
                         | WindowManager.LayoutParams.FLAG_NOT_TOUCH_MODAL
                         | WindowManager.LayoutParams.FLAG_LAYOUT_IN_SCREEN
                         | WindowManager.LayoutParams.FLAG_TRANSLUCENT_STATUS
-                        | WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION,
+                        | WindowManager.LayoutParams.FLAG_TRANSLUCENT_NAVIGATION
+                        | WindowManager.LayoutParams.FLAG_HARDWARE_ACCELERATED,
                 PixelFormat.TRANSLUCENT
         );
 
@@ -71,6 +148,45 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
         wallpaperParams.windowAnimations = android.R.style.Animation_Dialog;
     }
 
+    private void ensureWallpaperWindow() {
+        if (wallpaperRoot == null) {
+            wallpaperRoot = new FrameLayout(this) {
+                @Override
+                protected void onWindowVisibilityChanged(int visibility) {
+                    super.onWindowVisibilityChanged(visibility);
+                    playbackScheduler.setWindowVisible(visibility == View.VISIBLE);
+                }
+            };
+            windowManager.addView(wallpaperRoot, wallpaperParams);
+        }
+    }
+
+    private void onPlaybackChanged(boolean playing) {
+        // 不可见时暂停解码，恢复时从保存的状态继续
+        setLayerPlaying(currentLayer, playing);
+        setLayerPlaying(pendingLayer, playing);
+    }
+
+    private void setLayerPlaying(WallpaperLayer layer, boolean playing) {
+        if (layer == null) {
+            return;
+        }
+        if (layer.videoPlayer != null) {
+            if (playing) {
+                layer.videoPlayer.resume();
+            } else {
+                layer.videoPlayer.pause();
+            }
+        }
+        if (layer.gifEngine != null) {
+            if (playing) {
+                layer.gifEngine.start();
+            } else {
+                layer.gifEngine.stop();
+            }
+        }
+    }
+
     public void setWallpaper(String path) {
         currentWallpaperPath = path;
         wallpaperType = detectWallpaperType(path);
@@ -79,22 +195,65 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
 
     public void setTransparency(int value) {
         transparency = Math.max(0, Math.min(100, value));
-        if (wallpaperView != null) {
-            wallpaperView.setAlpha(transparency / 100f);
+        updateColorFilter();
+        applyColorFilter(currentLayer);
+        applyColorFilter(pendingLayer);
+    }
+
+    public void setBrightness(int value) {
+        brightness = Math.max(0, Math.min(100, value));
+        updateColorFilter();
+        applyColorFilter(currentLayer);
+        applyColorFilter(pendingLayer);
+    }
+
+    private void updateColorFilter() {
+        // RGB按亮度缩放，Alpha按透明度缩放
+        float scale = brightness / 100f;
+        colorMatrix.setScale(scale, scale, scale, transparency / 100f);
+        wallpaperFilter = brightness == 100 && transparency == 100 ? null : new ColorMatrixColorFilter(colorMatrix);
+    }
+
+    private void applyColorFilter(WallpaperLayer layer) {
+        // 不使用View.setAlpha，避免全屏视图额外的离屏绘制
+        if (layer == null) {
+            return;
+        }
+        View view = layer.view;
+        if (view instanceof TextureView) {
+            layer.layerPaint.setColorFilter(wallpaperFilter);
+            ((TextureView) view).setLayerPaint(layer.layerPaint);
+        } else if (view instanceof ImageView) {
+            ((ImageView) view).setColorFilter(wallpaperFilter);
+        } else if (view.getBackground() != null) {
+            view.getBackground().setColorFilter(wallpaperFilter);
+        }
+    }
+
+    public void setWallpaperMode(int mode) {
+        wallpaperMode = mode;
+        for (WallpaperLayer layer : new WallpaperLayer[]{currentLayer, pendingLayer}) {
+            if (layer != null && layer.view.getBackground() instanceof WallpaperDrawable) {
+                ((WallpaperDrawable) layer.view.getBackground()).setMode(mode);
+            }
         }
     }
 
     public void setMuted(boolean muted) {
         isMuted = muted;
-        if (mediaPlayer != null) {
-            mediaPlayer.setVolume(isMuted ? 0f : 1f);
+        for (WallpaperLayer layer : new WallpaperLayer[]{currentLayer, pendingLayer}) {
+            if (layer != null && layer.videoPlayer != null) {
+                layer.videoPlayer.setMuted(muted);
+            }
         }
     }
 
     public void setLooping(boolean looping) {
         isLooping = looping;
-        if (mediaPlayer != null) {
-            mediaPlayer.setLooping(isLooping);
+        for (WallpaperLayer layer : new WallpaperLayer[]{currentLayer, pendingLayer}) {
+            if (layer != null && layer.videoPlayer != null) {
+                layer.videoPlayer.setLooping(looping);
+            }
         }
     }
 
@@ -112,101 +271,147 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
     }
 
     private void updateWallpaperView() {
-        // 移除旧的壁纸视图
-        if (wallpaperView != null) {
-            windowManager.removeView(wallpaperView);
-            wallpaperView = null;
+        // 放弃还没显示出来的图层
+        if (pendingLayer != null) {
+            removeLayer(pendingLayer);
+            pendingLayer = null;
         }
-
-        // 停止旧的媒体播放器
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
+        if (currentWallpaperPath == null) {
+            return;
         }
+        // 已经显示的是同一个壁纸时保留现有图层和播放器
+        if (currentLayer != null && currentWallpaperPath.equals(currentLayer.path)
+                && wallpaperType == currentLayer.type) {
+            return;
+        }
+
+        ensureWallpaperWindow();
 
-        // 创建新的壁纸视图
+        // 新图层在旧图层之上以透明状态准备，第一帧就绪后再淡入
+        WallpaperLayer layer;
         switch (wallpaperType) {
             case WALLPAPER_TYPE_VIDEO:
-                createVideoWallpaper();
+                layer = createVideoWallpaper();
                 break;
             case WALLPAPER_TYPE_GIF:
-                createGifWallpaper();
+                layer = createGifWallpaper();
                 break;
             case WALLPAPER_TYPE_STATIC:
             default:
-                createStaticWallpaper();
+                layer = createStaticWallpaper();
                 break;
         }
-
-        // 添加壁纸视图到窗口管理器
-        if (wallpaperView != null) {
-            wallpaperView.setAlpha(transparency / 100f);
-            windowManager.addView(wallpaperView, wallpaperParams);
+        pendingLayer = layer;
+        if (!playbackScheduler.isPlaying()) {
+            setLayerPlaying(layer, false);
         }
+        layer.view.setTag(layer);
+        layer.view.setAlpha(0f);
+        applyColorFilter(layer);
+        wallpaperRoot.addView(layer.view, new FrameLayout.LayoutParams(
+                FrameLayout.LayoutParams.MATCH_PARENT, FrameLayout.LayoutParams.MATCH_PARENT));
     }
 
-    private void createVideoWallpaper() {
-        SurfaceView surfaceView = new SurfaceView(this);
-        surfaceView.getHolder().addCallback(this);
-        wallpaperView = surfaceView;
-    }
-
-    private void createStaticWallpaper() {
-        ImageView imageView = new ImageView(this);
-        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-        imageView.setImageURI(Uri.fromFile(new File(currentWallpaperPath)));
-        wallpaperView = imageView;
-    }
-
-    private void createGifWallpaper() {
-        ImageView imageView = new ImageView(this);
-        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-        imageView.setImageURI(Uri.fromFile(new File(currentWallpaperPath)));
-        wallpaperView = imageView;
+    private void onLayerReady(WallpaperLayer layer) {
+        if (layer != pendingLayer) {
+            return;
+        }
+        pendingLayer = null;
+        currentLayer = layer;
+
+        // 淡入期间使用硬件层，结束后移除旧图层并释放其资源
+        layer.view.animate()
+                .alpha(1f)
+                .setDuration(CROSS_FADE_DURATION_MS)
+                .withLayer()
+                .withEndAction(() -> {
+                    if (layer == currentLayer) {
+                        removeRetiredLayers();
+                    }
+                })
+                .start();
     }
 
-    @Override
-    public void surfaceCreated(SurfaceHolder holder) {
-        if (wallpaperType == WALLPAPER_TYPE_VIDEO && currentWallpaperPath != null) {
-            mediaPlayer = new MediaPlayer();
-            mediaPlayer.setDisplay(holder);
-            try {
-                mediaPlayer.setDataSource(currentWallpaperPath);
-                mediaPlayer.setVolume(isMuted ? 0f : 1f);
-                mediaPlayer.setLooping(isLooping);
-                mediaPlayer.setOnPreparedListener(this);
-                mediaPlayer.setOnCompletionListener(this);
-                mediaPlayer.prepareAsync();
-            } catch (Exception e) {
-                Log.e(TAG, "Error preparing media player: " + e.getMessage());
+    private void removeRetiredLayers() {
+        // 连续切换时可能有多个旧图层还在窗口中，统一移除
+        for (int i = wallpaperRoot.getChildCount() - 1; i >= 0; i--) {
+            Object tag = wallpaperRoot.getChildAt(i).getTag();
+            if (tag != currentLayer && tag != pendingLayer && tag instanceof WallpaperLayer) {
+                removeLayer((WallpaperLayer) tag);
             }
         }
     }
 
-    @Override
-    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
-        // 处理表面变化
+    private void removeLayer(WallpaperLayer layer) {
+        layer.view.animate().cancel();
+        if (wallpaperRoot != null) {
+            wallpaperRoot.removeView(layer.view);
+        }
+        layer.release();
     }
 
-    @Override
-    public void surfaceDestroyed(SurfaceHolder holder) {
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
-            mediaPlayer = null;
-        }
+    private WallpaperLayer createVideoWallpaper() {
+        // TextureView可以在合成时应用颜色滤镜，SurfaceView不行
+        TextureView textureView = new TextureView(this);
+        textureView.setOpaque(false);
+        WallpaperLayer layer = new WallpaperLayer(currentWallpaperPath, WALLPAPER_TYPE_VIDEO, textureView);
+        layer.videoPlayer = new VideoWallpaperPlayer(currentWallpaperPath, isMuted, isLooping,
+                player -> onLayerReady(layer));
+        layer.videoPlayer.attach(textureView);
+        return layer;
     }
 
-    @Override
-    public void onPrepared(MediaPlayer mp) {
-        mp.start();
+    private WallpaperLayer createStaticWallpaper() {
+        View view = new View(this);
+        WallpaperLayer layer = new WallpaperLayer(currentWallpaperPath, WALLPAPER_TYPE_STATIC, view);
+
+        // 按屏幕物理分辨率采样解码，完成后再显示
+        DisplayMetrics metrics = new DisplayMetrics();
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        String path = currentWallpaperPath;
+        decodeExecutor.execute(() -> {
+            Bitmap bitmap = BitmapDecoder.decodeFile(new File(path), metrics.widthPixels, metrics.heightPixels);
+            mainHandler.post(() -> onStaticWallpaperDecoded(layer, bitmap));
+        });
+        return layer;
     }
 
-    @Override
-    public void onCompletion(MediaPlayer mp) {
-        if (!isLooping) {
-            // 单次播放模式，播放完成后停止
-            mp.stop();
+    private void onStaticWallpaperDecoded(WallpaperLayer layer, Bitmap bitmap) {
+        if (bitmap == null) {
+            Log.e(TAG, "Error decoding wallpaper: " + layer.path);
+            // 解码失败时移除透明的待显示图层，继续显示当前壁纸
+            if (layer == pendingLayer) {
+                removeLayer(layer);
+                pendingLayer = null;
+            }
+            return;
         }
+        // 解码期间壁纸已被切换，丢弃过期的结果
+        if (layer.released) {
+            BitmapPool.getInstance().put(bitmap);
+            return;
+        }
+        layer.bitmap = bitmap;
+        layer.view.setBackground(new WallpaperDrawable(bitmap, wallpaperMode));
+        applyColorFilter(layer);
+        onLayerReady(layer);
+    }
+
+    private WallpaperLayer createGifWallpaper() {
+        ImageView imageView = new ImageView(this);
+        imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
+        WallpaperLayer layer = new WallpaperLayer(currentWallpaperPath, WALLPAPER_TYPE_GIF, imageView);
+
+        // 逐帧解码播放，不把整个动画展开到内存中
+        DisplayMetrics metrics = new DisplayMetrics();
+        windowManager.getDefaultDisplay().getRealMetrics(metrics);
+        layer.gifEngine = new GifWallpaperEngine(this, currentWallpaperPath, metrics.widthPixels, metrics.heightPixels);
+        layer.gifEngine.prepare(drawable -> {
+            imageView.setImageDrawable(drawable);
+            onLayerReady(layer);
+        });
+        layer.gifEngine.start();
+        return layer;
     }
 
     @Override
@@ -222,11 +427,16 @@ public class WallpaperService extends Service implements SurfaceHolder.Callback,
     @Override
     public void onDestroy() {
         super.onDestroy();
-        if (wallpaperView != null) {
-            windowManager.removeView(wallpaperView);
+        playbackScheduler.setListener(null);
+        // 先同步移除窗口，确保不会再绘制这些位图，之后才释放图层
+        if (wallpaperRoot != null) {
+            windowManager.removeViewImmediate(wallpaperRoot);
+        }
+        if (pendingLayer != null) {
+            pendingLayer.release();
         }
-        if (mediaPlayer != null) {
-            mediaPlayer.release();
+        if (currentLayer != null) {
+            currentLayer.release();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.emotn.launcher.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+public class BitmapDecoder {
+
+    private static final String TAG = "BitmapDecoder";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    // 采样后像素数不超过目标的这么多倍，超宽全景图也不会解码出过大的Bitmap
+    private static final int MAX_PIXEL_MULTIPLE = 4;
+
+    private BitmapDecoder() {
+    }
+
+    public static Bitmap decodeFile(File file, int reqWidth, int reqHeight) {
+        return decodeFile(file, reqWidth, reqHeight, Bitmap.Config.ARGB_8888);
+    }
+
+    public static Bitmap decodeFile(File file, int reqWidth, int reqHeight, Bitmap.Config config) {
+        // 先只读取尺寸，再根据目标尺寸计算采样率
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException e) {
+            Log.e(TAG, "Error reading bitmap bounds: " + e.getMessage());
+            return null;
+        }
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int sampleSize = calculateSampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        int width = (options.outWidth + sampleSize - 1) / sampleSize;
+        int height = (options.outHeight + sampleSize - 1) / sampleSize;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+        options.inMutable = true;
+        options.inBitmap = BitmapPool.getInstance().get(width, height, config);
+
+        Bitmap bitmap = decode(file, options);
+        if (bitmap == null && options.inBitmap != null) {
+            // 复用的Bitmap不满足解码要求时放回池中，重新分配后再解码一次
+            BitmapPool.getInstance().put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = decode(file, options);
+        }
+        return bitmap;
+    }
+
+    private static Bitmap decode(File file, BitmapFactory.Options options) {
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            return BitmapFactory.decodeStream(is, null, options);
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Error decoding bitmap: " + e.getMessage());
+            return null;
+        }
+    }
+
+    public static int calculateSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        // 目标尺寸不大于0时按原尺寸解码
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return 1;
+        }
+
+        // 取保证两边都不小于目标尺寸的最大的2的幂
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+
+        long maxPixels = (long) reqWidth * reqHeight * MAX_PIXEL_MULTIPLE;
+        while ((long) (width / sampleSize) * (height / sampleSize) > maxPixels) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+}
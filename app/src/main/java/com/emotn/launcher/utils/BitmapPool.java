@@ -0,0 +1,101 @@
+package com.emotn.launcher.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class BitmapPool {
+
+    // 复用的Bitmap最多比需要的大这么多倍，避免用大图承载小图浪费内存
+    private static final int MAX_SIZE_MULTIPLE = 4;
+
+    private static BitmapPool instance;
+
+    private final long maxBytes;
+    // 按分配字节数分桶，取用时查找不小于需求的最小的桶
+    private final TreeMap<Integer, ArrayDeque<Bitmap>> buckets = new TreeMap<>();
+    private long currentBytes;
+
+    public static synchronized BitmapPool getInstance() {
+        if (instance == null) {
+            instance = new BitmapPool(Runtime.getRuntime().maxMemory() / 16);
+        }
+        return instance;
+    }
+
+    private BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        int required = width * height * getBytesPerPixel(config);
+        Map.Entry<Integer, ArrayDeque<Bitmap>> entry = buckets.ceilingEntry(required);
+        if (entry == null || entry.getKey() > (long) required * MAX_SIZE_MULTIPLE) {
+            return null;
+        }
+
+        Bitmap bitmap = entry.getValue().poll();
+        if (entry.getValue().isEmpty()) {
+            buckets.remove(entry.getKey());
+        }
+        currentBytes -= entry.getKey();
+        return bitmap;
+    }
+
+    public synchronized void put(Bitmap bitmap) {
+        // 只有可变的Bitmap才能作为inBitmap复用
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+            return;
+        }
+        int size = bitmap.getAllocationByteCount();
+        if (size > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+
+        ArrayDeque<Bitmap> bucket = buckets.get(size);
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets.put(size, bucket);
+        }
+        bucket.push(bitmap);
+        currentBytes += size;
+        trimToSize();
+    }
+
+    public synchronized void clear() {
+        for (ArrayDeque<Bitmap> bucket : buckets.values()) {
+            for (Bitmap bitmap : bucket) {
+                bitmap.recycle();
+            }
+        }
+        buckets.clear();
+        currentBytes = 0;
+    }
+
+    private void trimToSize() {
+        // 超出容量时优先释放最大的Bitmap
+        while (currentBytes > maxBytes && !buckets.isEmpty()) {
+            Map.Entry<Integer, ArrayDeque<Bitmap>> largest = buckets.lastEntry();
+            Bitmap bitmap = largest.getValue().pollLast();
+            if (largest.getValue().isEmpty()) {
+                buckets.remove(largest.getKey());
+            }
+            currentBytes -= largest.getKey();
+            if (bitmap != null) {
+                bitmap.recycle();
+            }
+        }
+    }
+
+    static int getBytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            return 1;
+        }
+        return 4;
+    }
+}
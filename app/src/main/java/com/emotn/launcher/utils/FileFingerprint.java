@@ -0,0 +1,82 @@
+package com.emotn.launcher.utils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+public class FileFingerprint {
+
+    private static final int SAMPLE_COUNT = 5;
+    private static final int SAMPLE_SIZE = 16 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private FileFingerprint() {
+    }
+
+    public static boolean coversWholeFile(long size) {
+        // 文件不大于所有抽样块的总和时，抽样哈希就是完整哈希
+        return size <= (long) SAMPLE_COUNT * SAMPLE_SIZE;
+    }
+
+    public static String sampled(File file, long size) throws IOException {
+        // 大小加上开头、结尾和中间均匀分布的几个数据块，大文件也只读取几十KB
+        MessageDigest digest = newDigest();
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            digest.update((byte) (size >>> shift));
+        }
+        if (coversWholeFile(size)) {
+            updateWithFile(digest, file);
+            return toHex(digest.digest());
+        }
+
+        byte[] buffer = new byte[SAMPLE_SIZE];
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            for (int i = 0; i < SAMPLE_COUNT; i++) {
+                long offset = (size - SAMPLE_SIZE) * i / (SAMPLE_COUNT - 1);
+                input.seek(offset);
+                input.readFully(buffer);
+                digest.update(buffer);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static String full(File file) throws IOException {
+        MessageDigest digest = newDigest();
+        updateWithFile(digest, file);
+        return toHex(digest.digest());
+    }
+
+    private static void updateWithFile(MessageDigest digest, File file) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream is = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)) {
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+    }
+
+    public static MessageDigest newDigest() throws IOException {
+        // 与full()相同的算法，调用方边读取边计算的结果可与full()直接比较
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 not available", e);
+        }
+    }
+
+    public static String toHex(byte[] hash) {
+        StringBuilder builder = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+            builder.append(Character.forDigit(b & 0xf, 16));
+        }
+        return builder.toString();
+    }
+}
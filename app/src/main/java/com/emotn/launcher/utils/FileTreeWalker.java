@@ -0,0 +1,293 @@
+package com.emotn.launcher.utils;
+
+import android.os.Build;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class FileTreeWalker {
+
+    private static final String TAG = "FileTreeWalker";
+    public static final int DEFAULT_MAX_DEPTH = 8;
+
+    // 系统目录和回收站等不会包含壁纸，直接跳过
+    private static final Set<String> SKIPPED_DIRECTORIES = new HashSet<>(Arrays.asList(
+            "android", "lost.dir", "system volume information", "$recycle.bin", "recycler", "found.000"
+    ));
+
+    public interface Visitor {
+        void onFile(File file, long size, long lastModified);
+    }
+
+    public interface Cancellation {
+        boolean isCancelled();
+    }
+
+    public interface DirectoryCache {
+        // 目录修改时间未变时返回上次的列表，返回null则重新列出该目录
+        Listing get(File directory, long lastModified);
+
+        void put(File directory, Listing listing);
+    }
+
+    public static class Listing {
+        public final long lastModified;
+        public final List<String> directories = new ArrayList<>();
+        public final List<FileEntry> files = new ArrayList<>();
+
+        public Listing(long lastModified) {
+            this.lastModified = lastModified;
+        }
+    }
+
+    public static class FileEntry {
+        public final String name;
+        public final long size;
+        public final long lastModified;
+
+        public FileEntry(String name, long size, long lastModified) {
+            this.name = name;
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private int maxDepth = DEFAULT_MAX_DEPTH;
+    private final AtomicInteger filesVisited = new AtomicInteger();
+    private final AtomicInteger directoriesVisited = new AtomicInteger();
+    private final AtomicInteger directoriesReused = new AtomicInteger();
+    private final AtomicLong bytesExamined = new AtomicLong();
+    private volatile boolean rootDetached;
+    // API 26及以上用NIO目录流逐项读取，测试中可指定列目录方式
+    private final boolean useDirectoryStream;
+
+    private static class PendingDirectory {
+        final File directory;
+        final int depth;
+
+        PendingDirectory(File directory, int depth) {
+            this.directory = directory;
+            this.depth = depth;
+        }
+    }
+
+    public FileTreeWalker() {
+        this(Build.VERSION.SDK_INT >= Build.VERSION_CODES.O);
+    }
+
+    FileTreeWalker(boolean useDirectoryStream) {
+        this.useDirectoryStream = useDirectoryStream;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+    }
+
+    public void walk(File root, Visitor visitor, Cancellation cancellation) {
+        walk(root, visitor, cancellation, null);
+    }
+
+    public void walk(File root, Visitor visitor, Cancellation cancellation, DirectoryCache cache) {
+        // 用栈代替递归，深层目录不会导致栈溢出
+        Deque<PendingDirectory> pending = new ArrayDeque<>();
+        Set<String> visitedDirectories = new HashSet<>();
+        pending.push(new PendingDirectory(root, 0));
+
+        while (!pending.isEmpty() && !cancellation.isCancelled()) {
+            PendingDirectory current = pending.pop();
+            // 按真实路径去重，防止符号链接形成的循环
+            if (!visitedDirectories.add(getCanonicalPath(current.directory))) {
+                continue;
+            }
+            directoriesVisited.incrementAndGet();
+
+            Listing listing = null;
+            if (cache != null) {
+                // 目录修改时间未变说明其中没有增删文件，沿用缓存的内容，不再列出目录
+                long lastModified = current.directory.lastModified();
+                Listing cached = cache.get(current.directory, lastModified);
+                if (cached != null) {
+                    directoriesReused.incrementAndGet();
+                    replay(current, cached, pending, visitor, cache);
+                    continue;
+                }
+                listing = new Listing(lastModified);
+            }
+
+            boolean listed;
+            if (useDirectoryStream) {
+                listed = listWithDirectoryStream(current, pending, visitor, cancellation, listing);
+            } else {
+                listed = listWithNames(current, pending, visitor, cancellation, listing);
+            }
+            if (listing != null && listed && !cancellation.isCancelled()) {
+                cache.put(current.directory, listing);
+            }
+
+            // 目录无法读取且根目录已不存在，说明U盘已被拔出
+            if (!listed && !root.exists()) {
+                Log.d(TAG, "Root detached during walk: " + root);
+                rootDetached = true;
+                return;
+            }
+        }
+    }
+
+    private void replay(PendingDirectory current, Listing listing, Deque<PendingDirectory> pending, Visitor visitor,
+                        DirectoryCache cache) {
+        for (String name : listing.directories) {
+            pushDirectory(pending, new File(current.directory, name), name, current.depth);
+        }
+        // 目录修改时间只反映文件的增删，原地覆盖只改变文件本身，因此仍逐个读取大小和修改时间，只省去列出目录
+        Listing refreshed = new Listing(listing.lastModified);
+        refreshed.directories.addAll(listing.directories);
+        boolean changed = false;
+        for (FileEntry entry : listing.files) {
+            File file = new File(current.directory, entry.name);
+            long lastModified = file.lastModified();
+            if (lastModified == 0 && !file.exists()) {
+                changed = true;
+                continue;
+            }
+            long size = file.length();
+            visitFile(visitor, file, size, lastModified);
+            if (size != entry.size || lastModified != entry.lastModified) {
+                changed = true;
+                entry = new FileEntry(entry.name, size, lastModified);
+            }
+            refreshed.files.add(entry);
+        }
+        if (changed) {
+            cache.put(current.directory, refreshed);
+        }
+    }
+
+    private boolean listWithDirectoryStream(PendingDirectory current, Deque<PendingDirectory> pending,
+                                            Visitor visitor, Cancellation cancellation, Listing listing) {
+        // 逐项读取目录，不一次性分配整个File[]数组
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(current.directory.toPath())) {
+            for (Path path : stream) {
+                if (cancellation.isCancelled()) {
+                    break;
+                }
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    continue;
+                }
+                String name = path.getFileName().toString();
+                if (attributes.isDirectory()) {
+                    pushDirectory(pending, new File(current.directory, name), name, current.depth);
+                    record(listing, name);
+                } else if (attributes.isRegularFile() && !isHidden(name)) {
+                    long lastModified = attributes.lastModifiedTime().toMillis();
+                    visitFile(visitor, new File(current.directory, name), attributes.size(), lastModified);
+                    record(listing, new FileEntry(name, attributes.size(), lastModified));
+                }
+            }
+            return true;
+        } catch (IOException | SecurityException e) {
+            Log.e(TAG, "Error listing directory: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean listWithNames(PendingDirectory current, Deque<PendingDirectory> pending,
+                                  Visitor visitor, Cancellation cancellation, Listing listing) {
+        // API 26以下没有NIO目录流，使用只返回文件名的list()
+        String[] names = current.directory.list();
+        if (names == null) {
+            return false;
+        }
+        for (String name : names) {
+            if (cancellation.isCancelled()) {
+                break;
+            }
+            File file = new File(current.directory, name);
+            if (file.isDirectory()) {
+                pushDirectory(pending, file, name, current.depth);
+                record(listing, name);
+            } else if (!isHidden(name)) {
+                long size = file.length();
+                long lastModified = file.lastModified();
+                visitFile(visitor, file, size, lastModified);
+                record(listing, new FileEntry(name, size, lastModified));
+            }
+        }
+        return true;
+    }
+
+    private void pushDirectory(Deque<PendingDirectory> pending, File directory, String name, int parentDepth) {
+        if (parentDepth + 1 > maxDepth || isHidden(name)
+                || SKIPPED_DIRECTORIES.contains(name.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        pending.push(new PendingDirectory(directory, parentDepth + 1));
+    }
+
+    private static void record(Listing listing, String directoryName) {
+        if (listing != null) {
+            listing.directories.add(directoryName);
+        }
+    }
+
+    private static void record(Listing listing, FileEntry file) {
+        if (listing != null) {
+            listing.files.add(file);
+        }
+    }
+
+    private void visitFile(Visitor visitor, File file, long size, long lastModified) {
+        filesVisited.incrementAndGet();
+        bytesExamined.addAndGet(size);
+        visitor.onFile(file, size, lastModified);
+    }
+
+    private static boolean isHidden(String name) {
+        return name.startsWith(".");
+    }
+
+    private static String getCanonicalPath(File directory) {
+        try {
+            return directory.getCanonicalPath();
+        } catch (IOException e) {
+            return directory.getAbsolutePath();
+        }
+    }
+
+    public int getFilesVisited() {
+        return filesVisited.get();
+    }
+
+    public int getDirectoriesVisited() {
+        return directoriesVisited.get();
+    }
+
+    public int getDirectoriesReused() {
+        return directoriesReused.get();
+    }
+
+    public long getBytesExamined() {
+        return bytesExamined.get();
+    }
+
+    public boolean isRootDetached() {
+        return rootDetached;
+    }
+}
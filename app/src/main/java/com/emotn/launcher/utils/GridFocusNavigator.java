@@ -0,0 +1,120 @@
+package com.emotn.launcher.utils;
+
+import android.view.Choreographer;
+
+public class GridFocusNavigator {
+
+    public static final int DIRECTION_UP = 0;
+    public static final int DIRECTION_DOWN = 1;
+    public static final int DIRECTION_LEFT = 2;
+    public static final int DIRECTION_RIGHT = 3;
+    private static final int DIRECTION_COUNT = 4;
+    // 长按重复按键约每秒30次，比帧率低，按帧合并几乎合并不到；重复按键在这个时间窗口内累积后一次移动
+    private static final long REPEAT_WINDOW_MS = 100;
+
+    public interface Listener {
+        void onNavigate(int position);
+    }
+
+    private final Listener listener;
+    private final Choreographer choreographer;
+
+    // 邻居表：neighbours[position * 4 + direction]为该方向的目标位置
+    private int[] neighbours = new int[0];
+    private int itemCount;
+    private int columns;
+
+    private int currentPosition;
+    private int pendingPosition = -1;
+    private boolean frameScheduled;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            // 窗口内累积的按键只处理最终目标
+            frameScheduled = false;
+            if (pendingPosition >= 0 && pendingPosition != currentPosition) {
+                currentPosition = pendingPosition;
+                listener.onNavigate(currentPosition);
+            }
+            pendingPosition = -1;
+        }
+    };
+
+    public GridFocusNavigator(Listener listener) {
+        this.listener = listener;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    public void setLayout(int itemCount, int columns) {
+        // 只有数量或列数变化时才重新计算邻居表
+        if (itemCount == this.itemCount && columns == this.columns) {
+            return;
+        }
+        this.itemCount = itemCount;
+        this.columns = columns;
+        buildNeighbours();
+
+        currentPosition = Math.max(0, Math.min(currentPosition, itemCount - 1));
+        if (pendingPosition >= itemCount) {
+            pendingPosition = itemCount - 1;
+        }
+    }
+
+    private void buildNeighbours() {
+        neighbours = new int[itemCount * DIRECTION_COUNT];
+        int lastRowStart = itemCount == 0 ? 0 : (itemCount - 1) / columns * columns;
+        for (int position = 0; position < itemCount; position++) {
+            int column = position % columns;
+            int base = position * DIRECTION_COUNT;
+
+            neighbours[base + DIRECTION_UP] = position >= columns ? position - columns : position;
+            if (position + columns < itemCount) {
+                neighbours[base + DIRECTION_DOWN] = position + columns;
+            } else if (position < lastRowStart) {
+                // 下一行不完整时落到最后一个应用上
+                neighbours[base + DIRECTION_DOWN] = itemCount - 1;
+            } else {
+                neighbours[base + DIRECTION_DOWN] = position;
+            }
+            neighbours[base + DIRECTION_LEFT] = column > 0 ? position - 1 : position;
+            neighbours[base + DIRECTION_RIGHT] = column < columns - 1 && position + 1 < itemCount ? position + 1 : position;
+        }
+    }
+
+    public void move(int direction, boolean repeat) {
+        if (itemCount == 0) {
+            return;
+        }
+        // 每个按键事件只做一次查表；单次按键在下一帧移动焦点，长按的重复按键合并到窗口结束时移动
+        int from = pendingPosition >= 0 ? pendingPosition : currentPosition;
+        pendingPosition = neighbours[from * DIRECTION_COUNT + direction];
+        if (!frameScheduled) {
+            frameScheduled = true;
+            if (repeat) {
+                choreographer.postFrameCallbackDelayed(frameCallback, REPEAT_WINDOW_MS);
+            } else {
+                choreographer.postFrameCallback(frameCallback);
+            }
+        }
+    }
+
+    public void setCurrentPosition(int position) {
+        // 焦点被点击或其他方式改变时同步当前位置；有待处理的按键时以按键为准
+        if (pendingPosition < 0 && position >= 0 && position < itemCount) {
+            currentPosition = position;
+        }
+    }
+
+    public int getCurrentPosition() {
+        return pendingPosition >= 0 ? pendingPosition : currentPosition;
+    }
+
+    public void cancel() {
+        if (frameScheduled) {
+            choreographer.removeFrameCallback(frameCallback);
+            frameScheduled = false;
+        }
+        pendingPosition = -1;
+    }
+}
@@ -0,0 +1,182 @@
+package com.emotn.launcher.utils;
+
+import android.app.Activity;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+public class StartupScheduler {
+
+    private static final String TAG = "StartupScheduler";
+
+    public static final int STAGE_BEFORE_FIRST_FRAME = 0;
+    public static final int STAGE_AFTER_FIRST_FRAME = 1;
+    public static final int STAGE_IDLE = 2;
+    private static final int STAGE_COUNT = 3;
+
+    // 首帧前的初始化超过该时间时输出警告，提示哪些任务在关键路径上
+    private static final long BEFORE_FIRST_FRAME_BUDGET_MS = 50;
+    // 进程启动后超过该时间才创建界面，说明进程是为服务或广播启动的，不算冷启动
+    private static final long COLD_START_MAX_PROCESS_AGE_MS = 5000;
+
+    private static class Task {
+        final String name;
+        final Runnable runnable;
+
+        Task(String name, Runnable runnable) {
+            this.name = name;
+            this.runnable = runnable;
+        }
+    }
+
+    // 进程内第一次创建界面，且进程刚刚为此启动时才视为冷启动
+    private static boolean processFirstLaunch = true;
+
+    private final Activity activity;
+    private final Handler mainHandler;
+    private final List<List<Task>> stages = new ArrayList<>();
+    private final LinkedList<Task> idleTasks = new LinkedList<>();
+    private final long createTime;
+    private final boolean coldStart;
+    private long firstFrameTime;
+    private long fullyDrawnTime;
+    private boolean started;
+    private boolean cancelled;
+    private View decorView;
+    private ViewTreeObserver.OnDrawListener drawListener;
+    private final MessageQueue.IdleHandler idleHandler = this::runNextIdleTask;
+
+    public StartupScheduler(Activity activity) {
+        this.activity = activity;
+        this.mainHandler = new Handler(Looper.getMainLooper());
+        this.createTime = SystemClock.uptimeMillis();
+        this.coldStart = processFirstLaunch
+                && createTime - Process.getStartUptimeMillis() < COLD_START_MAX_PROCESS_AGE_MS;
+        processFirstLaunch = false;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            stages.add(new ArrayList<>());
+        }
+    }
+
+    public void add(int stage, String name, Runnable runnable) {
+        stages.get(stage).add(new Task(name, runnable));
+    }
+
+    public void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+
+        long stageTime = runTasks(STAGE_BEFORE_FIRST_FRAME, stages.get(STAGE_BEFORE_FIRST_FRAME));
+        if (stageTime > BEFORE_FIRST_FRAME_BUDGET_MS) {
+            Log.w(TAG, "Before-first-frame stage took " + stageTime + " ms, budget is "
+                    + BEFORE_FIRST_FRAME_BUDGET_MS + " ms");
+        }
+
+        decorView = activity.getWindow().getDecorView();
+        drawListener = new ViewTreeObserver.OnDrawListener() {
+            @Override
+            public void onDraw() {
+                if (firstFrameTime != 0) {
+                    return;
+                }
+                firstFrameTime = SystemClock.uptimeMillis();
+                // 绘制回调中不能移除监听，放到下一次消息循环中处理
+                mainHandler.post(() -> {
+                    removeDrawListener();
+                    onFirstFrame();
+                });
+            }
+        };
+        decorView.getViewTreeObserver().addOnDrawListener(drawListener);
+    }
+
+    public void cancel() {
+        // 界面销毁时调用，未执行的首帧后任务和空闲任务不再执行
+        cancelled = true;
+        removeDrawListener();
+        mainHandler.removeCallbacksAndMessages(null);
+        idleTasks.clear();
+        Looper.myQueue().removeIdleHandler(idleHandler);
+    }
+
+    private void removeDrawListener() {
+        if (drawListener != null) {
+            decorView.getViewTreeObserver().removeOnDrawListener(drawListener);
+            drawListener = null;
+        }
+    }
+
+    private boolean isActivityGone() {
+        return cancelled || activity.isFinishing() || activity.isDestroyed();
+    }
+
+    private void onFirstFrame() {
+        // 首帧之前界面已经结束时，不再操作已销毁的界面
+        if (isActivityGone()) {
+            return;
+        }
+        Log.i(TAG, "Time to first frame: " + (firstFrameTime - createTime) + " ms"
+                + getProcessStartSuffix(firstFrameTime));
+        runTasks(STAGE_AFTER_FIRST_FRAME, stages.get(STAGE_AFTER_FIRST_FRAME));
+
+        // 空闲阶段每次只执行一个任务，避免长时间占用主线程
+        idleTasks.addAll(stages.get(STAGE_IDLE));
+        Looper.myQueue().addIdleHandler(idleHandler);
+    }
+
+    private boolean runNextIdleTask() {
+        Task task = idleTasks.poll();
+        if (task != null && !isActivityGone()) {
+            runTask(STAGE_IDLE, task);
+        }
+        return !idleTasks.isEmpty();
+    }
+
+    public void reportFullyDrawn() {
+        // 应用列表第一次显示完成时调用，每次启动只记录一次
+        if (fullyDrawnTime != 0) {
+            return;
+        }
+        fullyDrawnTime = SystemClock.uptimeMillis();
+        Log.i(TAG, "Time to fully drawn: " + (fullyDrawnTime - createTime) + " ms"
+                + getProcessStartSuffix(fullyDrawnTime));
+        try {
+            activity.reportFullyDrawn();
+        } catch (SecurityException e) {
+            Log.e(TAG, "Error reporting fully drawn: " + e.getMessage());
+        }
+    }
+
+    private long runTasks(int stage, List<Task> tasks) {
+        long start = SystemClock.uptimeMillis();
+        for (Task task : tasks) {
+            runTask(stage, task);
+        }
+        return SystemClock.uptimeMillis() - start;
+    }
+
+    private void runTask(int stage, Task task) {
+        long start = SystemClock.uptimeMillis();
+        task.runnable.run();
+        Log.d(TAG, "Stage " + stage + " task " + task.name + ": " + (SystemClock.uptimeMillis() - start) + " ms");
+    }
+
+    private String getProcessStartSuffix(long time) {
+        // 冷启动时额外输出从进程启动开始的耗时
+        if (coldStart) {
+            return " (cold start, " + (time - Process.getStartUptimeMillis()) + " ms since process start)";
+        }
+        return " (warm start)";
+    }
+}
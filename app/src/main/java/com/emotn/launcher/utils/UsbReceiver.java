@@ -5,32 +5,64 @@ import android.content.Context;
 import android.content.Intent;
 import android.hardware.usb.UsbDevice;
 import android.hardware.usb.UsbManager;
+import android.net.Uri;
+import android.os.Build;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.storage.StorageManager;
+import android.os.storage.StorageVolume;
 import android.util.Log;
 import android.widget.Toast;
 
 import com.emotn.launcher.R;
+import com.emotn.launcher.manager.UsbScanEngine;
+import com.emotn.launcher.manager.WallpaperImporter;
 import com.emotn.launcher.manager.WallpaperManager;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 public class UsbReceiver extends BroadcastReceiver {
 
     private static final String TAG = "UsbReceiver";
+    // 多分区U盘和USB集线器会在短时间内连续发出多个挂载广播，合并后统一处理
+    private static final long MOUNT_DEBOUNCE_MS = 300;
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final Set<String> pendingMounts = new LinkedHashSet<>();
+    private static final List<PendingResult> pendingResults = new ArrayList<>();
+    private static Context pendingContext;
+    private static final Runnable flushMounts = UsbReceiver::flushPendingMounts;
 
     @Override
     public void onReceive(Context context, Intent intent) {
         String action = intent.getAction();
         Log.d(TAG, "Received action: " + action);
 
-        if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(action)) {
-            // U盘已连接
+        if (Intent.ACTION_MEDIA_MOUNTED.equals(action)) {
+            // 存储卷已挂载可读，由挂载事件触发扫描，不再等待固定时间
+            Uri data = intent.getData();
+            if (data != null && data.getPath() != null) {
+                handleVolumeMounted(context, data.getPath());
+            }
+        } else if (Intent.ACTION_MEDIA_UNMOUNTED.equals(action)
+                || Intent.ACTION_MEDIA_EJECT.equals(action)
+                || Intent.ACTION_MEDIA_BAD_REMOVAL.equals(action)
+                || Intent.ACTION_MEDIA_REMOVED.equals(action)) {
+            // 卷卸载早于USB断开广播，尽早停止读取；弹出时目录仍然存在，按广播中的卷路径取消
+            Uri data = intent.getData();
+            if (data != null && data.getPath() != null) {
+                handleVolumeUnmounted(data.getPath());
+            }
+        } else if (UsbManager.ACTION_USB_DEVICE_ATTACHED.equals(action)) {
+            // U盘已连接，此时通常还未挂载，等待挂载广播
             UsbDevice device = intent.getParcelableExtra(UsbManager.EXTRA_DEVICE);
             if (device != null) {
                 Log.d(TAG, "USB device attached: " + device.getDeviceName());
-                handleUsbAttached(context);
             }
         } else if (UsbManager.ACTION_USB_DEVICE_DETACHED.equals(action)) {
             // U盘已断开
@@ -42,77 +74,109 @@ public class UsbReceiver extends BroadcastReceiver {
         }
     }
 
-    private void handleUsbAttached(Context context) {
-        // 延迟一秒，确保系统已经挂载U盘
-        new Thread(() -> {
-            try {
-                Thread.sleep(1000);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
+    private void handleVolumeMounted(Context context, String path) {
+        Log.d(TAG, "Volume mounted: " + path);
+        // 保持广播有效直到合并窗口结束，期间进程不会被回收
+        pendingResults.add(goAsync());
+        pendingMounts.add(path);
+        pendingContext = context.getApplicationContext();
+        mainHandler.removeCallbacks(flushMounts);
+        mainHandler.postDelayed(flushMounts, MOUNT_DEBOUNCE_MS);
+    }
+
+    private void handleVolumeUnmounted(String path) {
+        Log.d(TAG, "Volume unmounted: " + path);
+        // 还在合并窗口中的挂载不再扫描
+        pendingMounts.remove(path);
+        UsbScanEngine.cancelScans(path);
+        WallpaperManager.cancelScans(path);
+        WallpaperImporter.cancelImports(path);
+    }
 
-            // 扫描所有挂载的USB设备
-            List<String> usbPaths = getUsbPaths();
-            if (!usbPaths.isEmpty()) {
-                // 显示提示信息，询问是否扫描壁纸
-                showUsbScanPrompt(context, usbPaths);
+    private static void flushPendingMounts() {
+        // 只处理本次新挂载且可读的可移动存储卷
+        List<String> usbPaths = new ArrayList<>();
+        for (String path : getUsbPaths(pendingContext)) {
+            if (pendingMounts.contains(path)) {
+                usbPaths.add(path);
             }
-        }).start();
+        }
+        if (!usbPaths.isEmpty()) {
+            // 显示提示信息，询问是否扫描壁纸
+            showUsbScanPrompt(pendingContext, usbPaths);
+        }
+
+        pendingMounts.clear();
+        pendingContext = null;
+        for (PendingResult result : pendingResults) {
+            result.finish();
+        }
+        pendingResults.clear();
     }
 
     private void handleUsbDetached(Context context) {
+        // 停止正在扫描已拔出设备的任务
+        UsbScanEngine.cancelDetachedScans();
+        WallpaperManager.cancelDetachedScans();
+        WallpaperImporter.cancelDetachedImports();
         // 显示设备已断开的提示
         Toast.makeText(context, R.string.device_disconnected, Toast.LENGTH_SHORT).show();
     }
 
-    private List<String> getUsbPaths() {
+    public static List<String> getUsbPaths(Context context) {
+        // 通过StorageManager枚举已挂载的可移动存储卷
         List<String> usbPaths = new ArrayList<>();
-
-        // 检查所有可能的USB挂载点
-        String[] possiblePaths = {
-                "/storage/usb0",
-                "/storage/usb1",
-                "/storage/usbotg",
-                "/mnt/usb0",
-                "/mnt/usb1",
-                "/mnt/usbotg"
-        };
-
-        for (String path : possiblePaths) {
-            File file = new File(path);
-            if (file.exists() && file.isDirectory() && file.canRead()) {
-                usbPaths.add(path);
-            }
+        StorageManager storageManager = context.getSystemService(StorageManager.class);
+        if (storageManager == null) {
+            return usbPaths;
         }
 
-        // 也检查外部存储目录，可能包含USB设备
-        File externalStorage = Environment.getExternalStorageDirectory();
-        if (externalStorage != null && externalStorage.exists() && externalStorage.isDirectory()) {
-            File[] files = externalStorage.getParentFile().listFiles();
-            if (files != null) {
-                for (File file : files) {
-                    if (file.exists() && file.isDirectory() && file.canRead() && 
-                            (file.getName().startsWith("usb") || file.getName().startsWith("usbotg"))) {
-                        usbPaths.add(file.getAbsolutePath());
-                    }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            for (StorageVolume volume : storageManager.getStorageVolumes()) {
+                addIfReadable(usbPaths, volume, volume.getDirectory());
+            }
+        } else {
+            // API 30以下StorageVolume没有公开路径，从各卷上的应用目录反推卷根目录
+            for (File appDir : context.getExternalFilesDirs(null)) {
+                if (appDir == null) {
+                    continue;
+                }
+                String path = appDir.getAbsolutePath();
+                int index = path.indexOf("/Android/data/");
+                if (index > 0) {
+                    addIfReadable(usbPaths, storageManager.getStorageVolume(appDir), new File(path.substring(0, index)));
                 }
             }
         }
-
         return usbPaths;
     }
 
-    private void showUsbScanPrompt(Context context, List<String> usbPaths) {
+    private static void addIfReadable(List<String> usbPaths, StorageVolume volume, File root) {
+        if (volume == null || root == null || !volume.isRemovable()) {
+            return;
+        }
+        String state = volume.getState();
+        if (!Environment.MEDIA_MOUNTED.equals(state) && !Environment.MEDIA_MOUNTED_READ_ONLY.equals(state)) {
+            return;
+        }
+        // 根目录可读才加入；只检查权限，不在主线程列出目录
+        if (root.canRead()) {
+            usbPaths.add(root.getAbsolutePath());
+        }
+    }
+
+    private static void showUsbScanPrompt(Context context, List<String> usbPaths) {
         // 这里应该显示一个对话框，询问用户是否扫描U盘中的壁纸
         // 由于是广播接收器，我们需要通过Intent启动一个Activity或Service来显示对话框
         // 简化实现，直接开始扫描
         startUsbScan(context, usbPaths);
     }
 
-    private void startUsbScan(Context context, List<String> usbPaths) {
-        // 启动扫描服务
-        Intent intent = new Intent(context, UsbScanService.class);
-        intent.putStringArrayListExtra("usb_paths", new ArrayList<>(usbPaths));
-        context.startService(intent);
+    private static void startUsbScan(Context context, List<String> usbPaths) {
+        // 交给扫描引擎，同一存储卷重复的请求会合并
+        UsbScanEngine scanEngine = UsbScanEngine.getInstance(context);
+        for (String path : usbPaths) {
+            scanEngine.requestScan(path, null);
+        }
     }
 }
@@ -0,0 +1,81 @@
+package com.emotn.launcher.manager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AppManagerOrderTest {
+
+    private final Map<String, Long> positions = new HashMap<>();
+    private final Set<String> changed = new HashSet<>();
+
+    @Test
+    public void insertsBetweenNeighboursWithoutTouchingThem() {
+        positions.put("a", 0L);
+        positions.put("b", 100L);
+
+        AppManager.insertOrderPosition(positions, changed, Arrays.asList("a", "b"), "x", 1);
+
+        assertEquals(50L, (long) positions.get("x"));
+        assertEquals(Collections.singleton("x"), changed);
+    }
+
+    @Test
+    public void pinsUnorderedAppsBeforeTheTarget() {
+        AppManager.insertOrderPosition(positions, changed, Arrays.asList("a", "b", "c"), "x", 2);
+
+        assertTrue(positions.get("a") < positions.get("b"));
+        assertTrue(positions.get("b") < positions.get("x"));
+        assertFalse(positions.containsKey("c"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "x")), changed);
+    }
+
+    @Test
+    public void movesToFrontBeforeFirstPosition() {
+        positions.put("a", 10L);
+
+        AppManager.insertOrderPosition(positions, changed, Collections.singletonList("a"), "x", 0);
+
+        assertTrue(positions.get("x") < positions.get("a"));
+        assertEquals(Collections.singleton("x"), changed);
+    }
+
+    @Test
+    public void movesToEndAfterLastPosition() {
+        positions.put("a", 0L);
+        positions.put("b", 5L);
+
+        AppManager.insertOrderPosition(positions, changed, Arrays.asList("a", "b"), "x", 2);
+
+        assertTrue(positions.get("x") > positions.get("b"));
+        assertEquals(Collections.singleton("x"), changed);
+    }
+
+    @Test
+    public void renumbersWhenGapIsExhausted() {
+        positions.put("a", 0L);
+        positions.put("b", 1L);
+        positions.put("c", 2L);
+        List<String> ordered = Arrays.asList("a", "b", "c");
+
+        AppManager.insertOrderPosition(positions, changed, ordered, "x", 1);
+
+        assertTrue(positions.get("a") < positions.get("x"));
+        assertTrue(positions.get("x") < positions.get("b"));
+        assertTrue(positions.get("b") < positions.get("c"));
+        // 重新分配后留出足够间隔，下一次插入不再需要重排
+        assertTrue(positions.get("b") - positions.get("x") > 1);
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "x")), changed);
+        assertEquals(Arrays.asList("a", "b", "c"), ordered);
+    }
+}
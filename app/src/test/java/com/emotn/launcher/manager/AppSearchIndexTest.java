@@ -0,0 +1,66 @@
+package com.emotn.launcher.manager;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AppSearchIndexTest {
+
+    private AppSearchIndex index;
+    private AppManager.AppItem wechat;
+    private AppManager.AppItem tencentVideo;
+    private AppManager.AppItem qqMusic;
+    private AppManager.AppItem googlePlay;
+
+    @Before
+    public void setUp() {
+        index = new AppSearchIndex();
+        wechat = new AppManager.AppItem("com.tencent.mm", "LauncherUI", "微信", 1);
+        tencentVideo = new AppManager.AppItem("com.tencent.qqlive", "SplashActivity", "腾讯视频", 1);
+        qqMusic = new AppManager.AppItem("com.tencent.qqmusic", "AppStarterActivity", "QQ音乐", 1);
+        googlePlay = new AppManager.AppItem("com.android.vending", "AssetBrowserActivity", "Google Play", 1);
+        index.update(Arrays.asList(wechat, tencentVideo, qqMusic, googlePlay));
+    }
+
+    @Test
+    public void matchesPinyinInitials() {
+        assertEquals(Collections.singletonList(wechat), index.search("wx"));
+        assertEquals(Collections.singletonList(tencentVideo), index.search("txsp"));
+        assertEquals(Collections.singletonList(tencentVideo), index.search("tx"));
+    }
+
+    @Test
+    public void keepsLatinLettersInMixedInitials() {
+        assertEquals(Collections.singletonList(qqMusic), index.search("qqyl"));
+    }
+
+    @Test
+    public void matchesFullLabelAndWordPrefixes() {
+        assertEquals(Collections.singletonList(wechat), index.search("微"));
+        assertEquals(Collections.singletonList(googlePlay), index.search("goo"));
+        assertEquals(Collections.singletonList(googlePlay), index.search("PLAY"));
+    }
+
+    @Test
+    public void emptyQueryReturnsNothing() {
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search(" ").isEmpty());
+    }
+
+    @Test
+    public void updateDropsRemovedAndReindexesChangedApps() {
+        AppManager.AppItem renamed = new AppManager.AppItem("com.tencent.mm", "LauncherUI", "WeChat", 2);
+        index.update(Arrays.asList(renamed, tencentVideo));
+
+        assertTrue(index.search("wx").isEmpty());
+        assertTrue(index.search("qqyl").isEmpty());
+        List<AppManager.AppItem> results = index.search("wec");
+        assertEquals(Collections.singletonList(renamed), results);
+    }
+}
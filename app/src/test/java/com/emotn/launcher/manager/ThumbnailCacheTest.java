@@ -0,0 +1,144 @@
+package com.emotn.launcher.manager;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailCacheTest {
+
+    private static final String KEY_A = ThumbnailCache.getKey("/usb/a.jpg", 1, 1);
+    private static final String KEY_B = ThumbnailCache.getKey("/usb/b.jpg", 1, 1);
+    private static final String KEY_C = ThumbnailCache.getKey("/usb/c.jpg", 1, 1);
+
+    private File cacheDir;
+
+    @Before
+    public void setUp() throws IOException {
+        cacheDir = Files.createTempDirectory("thumbnails").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        cacheDir.delete();
+    }
+
+    @Test
+    public void keyIsStableAndDependsOnSizeAndTime() {
+        String key = ThumbnailCache.getKey("/usb/a.jpg", 100, 200);
+
+        assertEquals(40, key.length());
+        assertTrue(key.matches("[0-9a-f]+"));
+        assertEquals(key, ThumbnailCache.getKey("/usb/a.jpg", 100, 200));
+        assertNotEquals(key, ThumbnailCache.getKey("/usb/a.jpg", 101, 200));
+        assertNotEquals(key, ThumbnailCache.getKey("/usb/a.jpg", 100, 201));
+    }
+
+    @Test
+    public void replaysJournal() throws IOException {
+        createThumbnail(KEY_A, 10);
+        createThumbnail(KEY_B, 20);
+        writeJournal("PUT " + KEY_A + " 10", "PUT " + KEY_B + " 20", "GET " + KEY_A, "DEL " + KEY_B);
+
+        ThumbnailCache cache = new ThumbnailCache(cacheDir, 1000);
+
+        assertTrue(cache.contains(KEY_A));
+        assertFalse(cache.contains(KEY_B));
+        assertEquals(10, cache.getTotalBytes());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedOverCapacity() throws IOException {
+        createThumbnail(KEY_A, 40);
+        createThumbnail(KEY_B, 40);
+        createThumbnail(KEY_C, 40);
+        writeJournal("PUT " + KEY_A + " 40", "PUT " + KEY_B + " 40", "PUT " + KEY_C + " 40", "GET " + KEY_A);
+
+        ThumbnailCache cache = new ThumbnailCache(cacheDir, 100);
+
+        assertTrue(cache.contains(KEY_A));
+        assertFalse(cache.contains(KEY_B));
+        assertTrue(cache.contains(KEY_C));
+        assertEquals(80, cache.getTotalBytes());
+        assertFalse(new File(cacheDir, KEY_B + ".webp").exists());
+    }
+
+    @Test
+    public void removalIsJournaled() throws IOException {
+        createThumbnail(KEY_A, 10);
+        createThumbnail(KEY_B, 10);
+        writeJournal("PUT " + KEY_A + " 10", "PUT " + KEY_B + " 10");
+
+        new ThumbnailCache(cacheDir, 1000).remove(KEY_A);
+        ThumbnailCache reopened = new ThumbnailCache(cacheDir, 1000);
+
+        assertFalse(reopened.contains(KEY_A));
+        assertTrue(reopened.contains(KEY_B));
+        assertEquals(10, reopened.getTotalBytes());
+        assertFalse(new File(cacheDir, KEY_A + ".webp").exists());
+    }
+
+    @Test
+    public void rebuildsFromDirectoryWithoutJournal() throws IOException {
+        createThumbnail(KEY_A, 30);
+        createThumbnail(KEY_B, 50);
+        File stray = new File(cacheDir, "old_format.png");
+        assertTrue(stray.createNewFile());
+
+        ThumbnailCache cache = new ThumbnailCache(cacheDir, 1000);
+
+        assertTrue(cache.contains(KEY_A));
+        assertTrue(cache.contains(KEY_B));
+        assertEquals(80, cache.getTotalBytes());
+        assertFalse(stray.exists());
+        assertTrue(new File(cacheDir, "journal").exists());
+    }
+
+    @Test
+    public void corruptJournalFallsBackToDirectory() throws IOException {
+        createThumbnail(KEY_A, 30);
+        writeJournal("PUT " + KEY_A + " not_a_number");
+
+        ThumbnailCache cache = new ThumbnailCache(cacheDir, 1000);
+
+        assertTrue(cache.contains(KEY_A));
+        assertEquals(30, cache.getTotalBytes());
+    }
+
+    @Test
+    public void deletesLeftoverTempFiles() throws IOException {
+        createThumbnail(KEY_A, 10);
+        writeJournal("PUT " + KEY_A + " 10");
+        File temp = new File(cacheDir, KEY_A + "123.tmp");
+        assertTrue(temp.createNewFile());
+
+        new ThumbnailCache(cacheDir, 1000);
+
+        assertFalse(temp.exists());
+        assertTrue(new File(cacheDir, KEY_A + ".webp").exists());
+    }
+
+    private void createThumbnail(String key, int size) throws IOException {
+        Files.write(new File(cacheDir, key + ".webp").toPath(), new byte[size]);
+    }
+
+    private void writeJournal(String... lines) throws IOException {
+        Files.write(new File(cacheDir, "journal").toPath(),
+                (String.join("\n", lines) + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,199 @@
+package com.emotn.launcher.manager;
+
+import com.emotn.launcher.utils.FileTreeWalker;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UsbScanCacheTest {
+
+    private static final String UUID = "1234-ABCD";
+
+    private File workDir;
+    private File volume;
+    private File cacheFile;
+
+    @Before
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("usbscan").toFile();
+        volume = new File(workDir, "volume");
+        volume.mkdirs();
+        File cacheDir = new File(workDir, "cache");
+        cacheDir.mkdirs();
+        cacheFile = new File(cacheDir, UUID);
+    }
+
+    @After
+    public void tearDown() {
+        delete(workDir);
+    }
+
+    @Test
+    public void savedListingsLoadBackWithWallpapersOnly() {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        FileTreeWalker.Listing listing = new FileTreeWalker.Listing(1000);
+        listing.directories.add("photos");
+        listing.files.add(new FileTreeWalker.FileEntry("a.jpg", 10, 100));
+        listing.files.add(new FileTreeWalker.FileEntry("notes.txt", 20, 200));
+        cache.put(volume, listing);
+        cache.put(new File(volume, "photos"), new FileTreeWalker.Listing(2000));
+        cache.save();
+
+        UsbScanCache.VolumeCache loaded = load(volume, true);
+        FileTreeWalker.Listing root = loaded.get(volume, 1000);
+        assertNotNull(root);
+        assertEquals(Collections.singletonList("photos"), root.directories);
+        assertEquals(1, root.files.size());
+        assertEquals("a.jpg", root.files.get(0).name);
+        assertEquals(10, root.files.get(0).size);
+        assertEquals(100, root.files.get(0).lastModified);
+        assertNotNull(loaded.get(new File(volume, "photos"), 2000));
+    }
+
+    @Test
+    public void changedDirectoryTimeMissesTheCache() {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        cache.put(volume, new FileTreeWalker.Listing(1000));
+        cache.save();
+
+        assertNull(load(volume, true).get(volume, 1001));
+    }
+
+    @Test
+    public void listingsAreKeyedRelativeToTheVolumeRoot() {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        cache.put(new File(volume, "photos"), new FileTreeWalker.Listing(1000));
+        cache.save();
+
+        File remounted = new File(workDir, "remounted");
+        assertNotNull(load(remounted, true).get(new File(remounted, "photos"), 1000));
+    }
+
+    @Test
+    public void saveDropsDirectoriesNotSeenAgain() {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        cache.put(volume, new FileTreeWalker.Listing(1000));
+        cache.put(new File(volume, "deleted"), new FileTreeWalker.Listing(2000));
+        cache.save();
+
+        UsbScanCache.VolumeCache rescan = load(volume, true);
+        assertNotNull(rescan.get(volume, 1000));
+        rescan.save();
+
+        UsbScanCache.VolumeCache reloaded = load(volume, true);
+        assertNotNull(reloaded.get(volume, 1000));
+        assertNull(reloaded.get(new File(volume, "deleted"), 2000));
+    }
+
+    @Test
+    public void unreliableVolumesNeverReuseListings() {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        cache.put(volume, new FileTreeWalker.Listing(1000));
+        cache.save();
+
+        assertNull(load(volume, false).get(volume, 1000));
+    }
+
+    @Test
+    public void unknownFormatIsIgnored() throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(cacheFile))) {
+            out.writeInt(-1);
+            out.writeInt(1);
+        }
+
+        assertNull(load(volume, true).get(volume, 0));
+    }
+
+    @Test
+    public void truncatedFileIsIgnored() throws IOException {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(volume, cacheFile, true);
+        FileTreeWalker.Listing listing = new FileTreeWalker.Listing(1000);
+        listing.files.add(new FileTreeWalker.FileEntry("a.jpg", 10, 100));
+        cache.put(volume, listing);
+        cache.save();
+        byte[] data = Files.readAllBytes(cacheFile.toPath());
+        Files.write(cacheFile.toPath(), Arrays.copyOf(data, data.length - 4));
+
+        assertNull(load(volume, true).get(volume, 1000));
+    }
+
+    @Test
+    public void onlyReliableFilesystemsReuseListings() {
+        String path = "/storage/" + UUID;
+        List<String> ext4 = Arrays.asList(
+                "/dev/block/vold/public:8,1 /mnt/media_rw/" + UUID + " ext4 rw 0 0",
+                "/dev/fuse " + path + " fuse rw 0 0");
+        List<String> vfat = Arrays.asList(
+                "/dev/block/vold/public:8,1 /mnt/media_rw/" + UUID + " vfat rw 0 0",
+                "/dev/fuse " + path + " fuse rw 0 0");
+        List<String> exfatFuse = Collections.singletonList("/dev/fuse /mnt/media_rw/" + UUID + " fuseblk rw 0 0");
+        List<String> otherVolume = Collections.singletonList("/dev/block/sda1 /mnt/media_rw/FFFF-0000 ext4 rw 0 0");
+
+        assertTrue(UsbScanCache.hasReliableDirectoryTimes(ext4, path, UUID));
+        assertFalse(UsbScanCache.hasReliableDirectoryTimes(vfat, path, UUID));
+        assertFalse(UsbScanCache.hasReliableDirectoryTimes(exfatFuse, path, UUID));
+        assertFalse(UsbScanCache.hasReliableDirectoryTimes(otherVolume, path, UUID));
+        assertFalse(UsbScanCache.hasReliableDirectoryTimes(Collections.<String>emptyList(), path, UUID));
+    }
+
+    @Test
+    public void rescanPicksUpInPlaceOverwrite() throws IOException {
+        File photos = new File(volume, "photos");
+        photos.mkdirs();
+        File wallpaper = new File(photos, "a.jpg");
+        Files.write(wallpaper.toPath(), new byte[10]);
+        scan(new UsbScanCache.VolumeCache(volume, cacheFile, true)).save();
+
+        // 覆盖文件内容但目录修改时间不变
+        long directoryTime = photos.lastModified();
+        Files.write(wallpaper.toPath(), new byte[25]);
+        photos.setLastModified(directoryTime);
+        UsbScanCache.VolumeCache rescan = load(volume, true);
+        List<Long> sizes = new ArrayList<>();
+        FileTreeWalker walker = new FileTreeWalker();
+        walker.walk(volume, (file, size, lastModified) -> sizes.add(size), () -> false, rescan);
+        rescan.save();
+
+        assertEquals(2, walker.getDirectoriesReused());
+        assertEquals(Collections.singletonList(25L), sizes);
+        assertEquals(25, load(volume, true).get(photos, directoryTime).files.get(0).size);
+    }
+
+    private UsbScanCache.VolumeCache scan(UsbScanCache.VolumeCache cache) {
+        new FileTreeWalker().walk(volume, (file, size, lastModified) -> { }, () -> false, cache);
+        return cache;
+    }
+
+    private UsbScanCache.VolumeCache load(File root, boolean reuseListings) {
+        UsbScanCache.VolumeCache cache = new UsbScanCache.VolumeCache(root, cacheFile, reuseListings);
+        cache.load();
+        return cache;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
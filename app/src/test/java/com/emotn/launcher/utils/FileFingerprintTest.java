@@ -0,0 +1,122 @@
+package com.emotn.launcher.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FileFingerprintTest {
+
+    // 5个16KB的抽样块
+    private static final int SAMPLED_BYTES = 5 * 16 * 1024;
+    private static final int LARGE_SIZE = 1024 * 1024;
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("fingerprint").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void coversWholeFileUpToTheSampledBytes() {
+        assertTrue(FileFingerprint.coversWholeFile(0));
+        assertTrue(FileFingerprint.coversWholeFile(SAMPLED_BYTES));
+        assertFalse(FileFingerprint.coversWholeFile(SAMPLED_BYTES + 1));
+    }
+
+    @Test
+    public void fullHashIsSha1OfContent() throws IOException, NoSuchAlgorithmException {
+        byte[] content = randomBytes(1000, 1);
+        File file = write("a.jpg", content);
+
+        byte[] expected = MessageDigest.getInstance("SHA-1").digest(content);
+        StringBuilder hex = new StringBuilder();
+        for (byte b : expected) {
+            hex.append(String.format("%02x", b));
+        }
+        assertEquals(hex.toString(), FileFingerprint.full(file));
+    }
+
+    @Test
+    public void smallFilesAreFingerprintedByContent() throws IOException {
+        File a = write("a.jpg", randomBytes(5000, 1));
+        File b = write("b.jpg", randomBytes(5000, 1));
+        File c = write("c.jpg", randomBytes(5000, 2));
+
+        assertEquals(FileFingerprint.sampled(a, a.length()), FileFingerprint.sampled(b, b.length()));
+        assertNotEquals(FileFingerprint.sampled(a, a.length()), FileFingerprint.sampled(c, c.length()));
+    }
+
+    @Test
+    public void largeFilesAreSampled() throws IOException {
+        byte[] content = randomBytes(LARGE_SIZE, 3);
+        File original = write("original.mp4", content);
+        String fingerprint = FileFingerprint.sampled(original, LARGE_SIZE);
+
+        // 抽样块之间的修改不影响抽样指纹，只有完整哈希能区分
+        content[LARGE_SIZE / 8] ^= 1;
+        File betweenSamples = write("between.mp4", content);
+        assertEquals(fingerprint, FileFingerprint.sampled(betweenSamples, LARGE_SIZE));
+        assertNotEquals(FileFingerprint.full(original), FileFingerprint.full(betweenSamples));
+
+        // 开头、中间和结尾的块都在抽样范围内
+        for (int offset : new int[]{0, LARGE_SIZE / 2, LARGE_SIZE - 1}) {
+            File changed = write("changed" + offset + ".mp4", content);
+            flipByte(changed, offset);
+            assertNotEquals(fingerprint, FileFingerprint.sampled(changed, LARGE_SIZE));
+        }
+    }
+
+    @Test
+    public void sizeIsPartOfTheFingerprint() throws IOException {
+        byte[] content = randomBytes(LARGE_SIZE, 4);
+        File file = write("a.mp4", content);
+
+        assertNotEquals(FileFingerprint.sampled(file, LARGE_SIZE), FileFingerprint.sampled(file, LARGE_SIZE - 1));
+    }
+
+    private File write(String name, byte[] content) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), content);
+        return file;
+    }
+
+    private static void flipByte(File file, long offset) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            int value = raf.read();
+            raf.seek(offset);
+            raf.write(value ^ 1);
+        }
+    }
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,155 @@
+package com.emotn.launcher.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FileTreeWalkerTest {
+
+    // 两种列目录方式都要覆盖：NIO目录流（API 26及以上）和list()
+    private static final boolean[] LISTERS = {true, false};
+
+    private File root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = Files.createTempDirectory("walker").toFile();
+        createFile("top.jpg");
+        createFile(".hidden.jpg");
+        createFile(".thumbnails/hidden_dir.jpg");
+        createFile("Android/data/app.jpg");
+        createFile("LOST.DIR/lost.jpg");
+        createFile("$RECYCLE.BIN/deleted.jpg");
+        createFile("System Volume Information/index.jpg");
+        createFile("one/one.jpg");
+        createFile("one/two/two.jpg");
+        createFile("one/two/three/three.jpg");
+    }
+
+    @After
+    public void tearDown() {
+        delete(root);
+    }
+
+    @Test
+    public void skipsHiddenAndSystemEntries() {
+        for (boolean useDirectoryStream : LISTERS) {
+            List<String> visited = walk(new FileTreeWalker(useDirectoryStream));
+
+            assertEquals(Arrays.asList("one/one.jpg", "one/two/three/three.jpg", "one/two/two.jpg", "top.jpg"),
+                    visited);
+        }
+    }
+
+    @Test
+    public void stopsAtMaxDepth() {
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            walker.setMaxDepth(2);
+
+            assertEquals(Arrays.asList("one/one.jpg", "one/two/two.jpg", "top.jpg"), walk(walker));
+        }
+    }
+
+    @Test
+    public void zeroDepthListsOnlyTheRoot() {
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            walker.setMaxDepth(0);
+
+            assertEquals(Collections.singletonList("top.jpg"), walk(walker));
+        }
+    }
+
+    @Test
+    public void cancellationStopsTheWalk() {
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            List<String> visited = new ArrayList<>();
+            walker.walk(root, (file, size, lastModified) -> visited.add(file.getName()), () -> true);
+
+            assertTrue(visited.isEmpty());
+            assertEquals(0, walker.getFilesVisited());
+        }
+    }
+
+    @Test
+    public void missingRootIsReportedAsDetached() {
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            walker.walk(new File(root, "missing"), (file, size, lastModified) -> { }, () -> false);
+
+            assertTrue(walker.isRootDetached());
+        }
+    }
+
+    @Test
+    public void countsVisitedFilesAndBytes() throws IOException {
+        Files.write(new File(root, "top.jpg").toPath(), new byte[10]);
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            walk(walker);
+
+            assertEquals(4, walker.getFilesVisited());
+            assertEquals(10, walker.getBytesExamined());
+            assertFalse(walker.isRootDetached());
+        }
+    }
+
+    @Test
+    public void symlinkCycleEndsAndVisitsEachFileOnce() throws IOException {
+        // one/two/back -> one 和 one/root -> 根目录，两条链接都指回祖先目录
+        Files.createSymbolicLink(new File(root, "one/two/back").toPath(), new File(root, "one").toPath());
+        Files.createSymbolicLink(new File(root, "one/root").toPath(), root.toPath());
+        for (boolean useDirectoryStream : LISTERS) {
+            FileTreeWalker walker = new FileTreeWalker(useDirectoryStream);
+            List<String> visited = new ArrayList<>();
+            walker.walk(root, (file, size, lastModified) -> visited.add(file.getName()), () -> false);
+            Collections.sort(visited);
+
+            assertEquals(Arrays.asList("one.jpg", "three.jpg", "top.jpg", "two.jpg"), visited);
+            assertEquals(4, walker.getFilesVisited());
+        }
+    }
+
+    private List<String> walk(FileTreeWalker walker) {
+        List<String> visited = new ArrayList<>();
+        String rootPath = root.getAbsolutePath() + File.separator;
+        walker.walk(root, (file, size, lastModified) ->
+                visited.add(file.getAbsolutePath().substring(rootPath.length()).replace(File.separatorChar, '/')),
+                () -> false);
+        Collections.sort(visited);
+        return visited;
+    }
+
+    private void createFile(String relativePath) throws IOException {
+        File file = new File(root, relativePath);
+        file.getParentFile().mkdirs();
+        assertTrue(file.createNewFile());
+    }
+
+    private static void delete(File file) {
+        // 符号链接只删除链接本身，不进入它指向的目录
+        Path path = file.toPath();
+        File[] children = Files.isSymbolicLink(path) ? null : file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}